@@ -31,6 +31,7 @@ import dakara.eclipse.plugin.command.settings.PersistedWorkingSet.HistoryKey;
 import dakara.eclipse.plugin.kavi.picklist.InputState;
 import dakara.eclipse.plugin.kavi.picklist.InternalCommandContextProvider;
 import dakara.eclipse.plugin.kavi.picklist.InternalCommandContextProviderFactory;
+import dakara.eclipse.plugin.kavi.picklist.InternalContentProviderProxy;
 import dakara.eclipse.plugin.kavi.picklist.KaviPickListDialog;
 import dakara.eclipse.plugin.log.EclipsePluginLogger;
 import dakara.eclipse.plugin.platform.EclipseWorkbench;
@@ -54,6 +55,12 @@ public class FinderHandler extends AbstractHandler implements IStartup {
 	private PersistedWorkingSet<ResourceItem> settingsStore = null;
 	private List<ResourceItem> files = null;
 	private long lastResourceRefresh = 0l;
+	private final FieldResolver<ResourceItem> nameResolver    = new FieldResolver<>("name",    resource -> resource.name);
+	private final FieldResolver<ResourceItem> pathResolver    = new FieldResolver<>("path",    resource -> resource.displayPath);
+	private final FieldResolver<ResourceItem> projectResolver = new FieldResolver<>("project", resource -> resource.project);
+	// kept with the cached files, so their analyzed corpus is reused each time the dialog opens
+	private final ListRankAndFilter<ResourceItem> discoveryRankAndFilter = listRankAndFilter(nameResolver, pathResolver, projectResolver).withLatencyBudget(16);
+	private final ListRankAndFilter<ResourceItem> workingRankAndFilter = listRankAndFilter(nameResolver, pathResolver, projectResolver);
 	
 	// NOTE: early startup creates another instance of this class separate from the instance used for execute
 	// we should do this differently
@@ -82,20 +89,19 @@ public class FinderHandler extends AbstractHandler implements IStartup {
 		IWorkbenchPage workbenchPage = HandlerUtil.getActiveWorkbenchWindowChecked(event).getActivePage();
 		IWorkspaceRoot workspace = ResourcesPlugin.getWorkspace().getRoot();
 		
-		FieldResolver<ResourceItem> nameResolver    = new FieldResolver<>("name",    resource -> resource.name);
-		FieldResolver<ResourceItem> pathResolver    = new FieldResolver<>("path",    resource -> extractPath(resource.path));
-		FieldResolver<ResourceItem> projectResolver = new FieldResolver<>("project", resource -> resource.project);
-		
 		KaviPickListDialog<ResourceItem> finder = new KaviPickListDialog<>();
-		finder.setListContentProvider("discovery", listContentProvider(listRankAndFilter(nameResolver, pathResolver, projectResolver), this::getAllFileAndTypeResources))
+		InternalContentProviderProxy<ResourceItem> discovery = finder.setListContentProvider("discovery", listContentProvider(discoveryRankAndFilter, this::getAllFileAndTypeResources))
+			  .setFieldOrdinals(discoveryRankAndFilter::fieldOrdinal)
 			  .setMultiResolvedAction(resourceItems -> handleSelectionAction(settingsStore, workbenchPage, workspace, resourceItems))
-			  .setShowAllWhenNoFilter(false)
-			  .setDebounceTimeProvider(inputCommand -> inputCommand.countFilterableCharacters() > 2 ? 50:200)
-			  .addColumn(nameResolver.fieldId, nameResolver.fieldResolver).widthPercent(30)
+			  .setShowAllWhenNoFilter(false);
+		discovery.addColumn(nameResolver.fieldId, nameResolver.fieldResolver).widthPercent(30)
 			  .addColumn(projectResolver.fieldId, projectResolver.fieldResolver).widthPercent(20).fontColor(155, 103, 4)
 			  .addColumn(pathResolver.fieldId, pathResolver.fieldResolver).widthPercent(50).italic().fontColor(100, 100, 100).backgroundColor(250, 250, 250);
+		// the debounce of the discovery list follows how long ranking all resources takes
+		discoveryRankAndFilter.withRankingTimeListener(discovery::recordRankingTime);
 		
-		finder.setListContentProvider("working", listContentProviderWorkingSet(listRankAndFilter(nameResolver, pathResolver, projectResolver), settingsStore))
+		finder.setListContentProvider("working", listContentProviderWorkingSet(workingRankAndFilter, settingsStore))
+			  .setFieldOrdinals(workingRankAndFilter::fieldOrdinal)
 			  .setMultiResolvedAction(resourceItems -> handleSelectionAction(settingsStore, workbenchPage, workspace, resourceItems))
 			  .addColumn(nameResolver.fieldId, nameResolver.fieldResolver).widthPercent(30).setMarkerIndicatorProvider(item -> { 
 					HistoryEntry historyEntry = settingsStore.getHistoryEntry(item);
@@ -143,19 +149,6 @@ public class FinderHandler extends AbstractHandler implements IStartup {
 		
 		return historyStore;
 	}
-	private String extractPath(String jarPathAndClass) {
-		final int locationOfSeparator = jarPathAndClass.indexOf("|");
-		if (locationOfSeparator < 0) {
-			return jarPathAndClass;
-		}
-		Path path =new Path(jarPathAndClass.substring(0, locationOfSeparator));
-		if(path.isEmpty()) {
-			return jarPathAndClass;
-		}
-		Path path2 = new Path(jarPathAndClass);
-		return jarPathAndClass.substring(jarPathAndClass.indexOf(path.lastSegment()),  jarPathAndClass.indexOf(path2.lastSegment()));
-	}
-	
 	public static void handleSelectionAction(PersistedWorkingSet<ResourceItem> historyStore, IWorkbenchPage workbenchPage, IWorkspaceRoot workspace, List<ResourceItem> resourceItems) {
 		for(ResourceItem resourceItem : resourceItems) {
 			historyStore.addToHistory(resourceItem);
@@ -190,7 +183,7 @@ public class FinderHandler extends AbstractHandler implements IStartup {
 		return (inputState) -> {
 			// TODO pre filter lists based on scope
 			// but how do we update pre filter here when scope changes?
-			List<RankedItem<ResourceItem>> filteredList = listRankAndFilter.rankAndFilter(inputState.inputCommand, resourceProvider.get() );
+			List<RankedItem<ResourceItem>> filteredList = listRankAndFilter.rankAndFilter(inputState.inputCommand, resourceProvider.get(), inputState::publishPartialResult, inputState.cancellation);
 			return filteredList;
 		};
 	}
@@ -220,7 +213,7 @@ public class FinderHandler extends AbstractHandler implements IStartup {
 	}
 	
 	public static ListRankAndFilter<ResourceItem> listRankAndFilter(FieldResolver<ResourceItem> nameField, FieldResolver<ResourceItem> pathField, FieldResolver<ResourceItem> projectField) {
-		ListRankAndFilter<ResourceItem> listRankAndFilter = ListRankAndFilter.make(nameField.fieldResolver);
+		ListRankAndFilter<ResourceItem> listRankAndFilter = ListRankAndFilter.make(nameField.fieldResolver).withTrigramIndex();
 		listRankAndFilter.addField(nameField.fieldId, nameField.fieldResolver);
 		listRankAndFilter.addField(projectField.fieldId, projectField.fieldResolver);
 		listRankAndFilter.addField(pathField.fieldId, pathField.fieldResolver);
@@ -14,6 +14,8 @@ public class ColumnOptions<T> {
 	final public int columnIndex;
 	final public String columnId;
 	private boolean searchable = true;
+	// ordinal of the ranked field with the same id as this column
+	private int fieldOrdinal = -1;
 	private int fontStyle = SWT.NONE;
 	private RGB fontRGB = new RGB(0,0,0);
 	private RGB backgroundRGB = new RGB(255,255,255);
@@ -94,6 +96,15 @@ public class ColumnOptions<T> {
 		return searchable;
 	}
 	
+	public int getFieldOrdinal() {
+		return fieldOrdinal;
+	}
+	
+	ColumnOptions<T> setFieldOrdinal(int fieldOrdinal) {
+		this.fieldOrdinal = fieldOrdinal;
+		return this;
+	}
+	
 	public RGB getFontColor() {
 		return fontRGB;
 	}
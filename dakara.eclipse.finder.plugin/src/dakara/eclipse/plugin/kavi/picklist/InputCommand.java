@@ -53,6 +53,49 @@ public class InputCommand {
 		return columnFilters.equals(otherInput.columnFilters) && isColumnFiltering == otherInput.isColumnFiltering;
 	}
 
+	/*
+	 * Text of the filters which are scored, the first columnCount in column mode.  Inputs with the same key
+	 * rank a list the same, whatever fast select text follows the filter.
+	 */
+	public String filterKey(int columnCount) {
+		if (!isColumnFiltering) return getColumnFilterOptions(0).rawInputText;
+		StringBuilder key = new StringBuilder();
+		for (int column = 0; column < columnCount; column++) {
+			key.append(getColumnFilterOptions(column).rawInputText).append(',');
+		}
+		return key.toString();
+	}
+	
+	/*
+	 * Every item matching this input also matched the previous input.
+	 * Only the columns which are scored, the first columnCount, are compared.
+	 *
+	 * In column mode a missing field is not found and left out of the total.  An item whose only filtered
+	 * field is missing has no rank and was not matched, but matches once another column gets a filter.
+	 * So every column filtered now must have been filtered before.
+	 */
+	public boolean isRefinementOf(InputCommand previous, int columnCount) {
+		if (isColumnFiltering != previous.isColumnFiltering) return false;
+		if (!isColumnFiltering) return getColumnFilterOptions(0).refines(previous.getColumnFilterOptions(0));
+		
+		// When no previous column had a filter, nothing was matched.  That can't be refined.
+		boolean previousFiltered = false;
+		for (int column = 0; column < columnCount; column++) {
+			ScoreFilterOptions previousOptions = previous.getColumnFilterOptions(column);
+			if (!isFiltering(previousOptions)) {
+				if (isFiltering(getColumnFilterOptions(column))) return false;
+				continue;  // column did not filter
+			}
+			if (!getColumnFilterOptions(column).refines(previousOptions)) return false;
+			previousFiltered = true;
+		}
+		return previousFiltered;
+	}
+	
+	private static boolean isFiltering(ScoreFilterOptions options) {
+		return options.filterTextCursorPrimitive.length() > 0 || options.inverseMatch;
+	}
+
 	private static InputCommand makeInputCommand(String commandPart) {
 		boolean fastSelectActive = commandPart.contains("/");
 		boolean multiSelectActive = commandPart.contains("//");
@@ -1,14 +1,43 @@
 package dakara.eclipse.plugin.kavi.picklist;
 
+import java.util.List;
+import java.util.function.Consumer;
+
+import dakara.eclipse.plugin.stringscore.CancellationToken;
+
 @SuppressWarnings("rawtypes")
 public class InputState {
 	public final InputCommand inputCommand;
 	public final InternalContentProviderProxy provider;
 	public final InternalContentProviderProxy previousProvider;
+	// cancelled when newer input makes this state stale
+	public final CancellationToken cancellation;
+	private final Consumer<List> partialResultConsumer;
 	
 	public InputState(InputCommand inputCommand, InternalContentProviderProxy provider, InternalContentProviderProxy previousProvider) {
+		this(inputCommand, provider, previousProvider, null, CancellationToken.NONE);
+	}
+	
+	public InputState(InputCommand inputCommand, InternalContentProviderProxy provider, InternalContentProviderProxy previousProvider, Consumer<List> partialResultConsumer, CancellationToken cancellation) {
 		this.inputCommand = inputCommand;
 		this.provider = provider;
 		this.previousProvider = previousProvider;
+		this.partialResultConsumer = partialResultConsumer;
+		this.cancellation = cancellation;
+	}
+	
+	/*
+	 * Same input, without partial results or cancellation.  For refreshing the content outside of typing.
+	 */
+	public InputState uncancellable() {
+		return new InputState(inputCommand, provider, previousProvider);
+	}
+	
+	/*
+	 * Content providers which take a while can show their best results so far.
+	 * The complete result is still returned as usual.
+	 */
+	public void publishPartialResult(List partialResult) {
+		if (partialResultConsumer != null) partialResultConsumer.accept(partialResult);
 	}
 }
@@ -14,15 +14,23 @@ import dakara.eclipse.plugin.stringscore.RankedItem;
 
 public class InternalCommandContextProvider {
 	private final List<ContextCommand> commands = new ArrayList<>();
+	private ListRankAndFilter<ContextCommand> listRankAndFilter = null;
 	
 	public Function<InputState, List<RankedItem<ContextCommand>>> makeProviderFunction(FieldResolver fieldResolver) {
-		ListRankAndFilter<ContextCommand> listRankAndFilter = listRankAndFilter(fieldResolver);
+		final ListRankAndFilter<ContextCommand> listRankAndFilter = listRankAndFilter(fieldResolver);
+		this.listRankAndFilter = listRankAndFilter;
 		return (inputState) -> {
+			// command names are resolved on each request and may have changed since the last one
+			listRankAndFilter.invalidateCorpus();
 			List<RankedItem<ContextCommand>> filteredList = listRankAndFilter.rankAndFilter(inputState.inputCommand, commands );
 			return filteredList.stream().filter(command -> includeCommand(command, inputState)).collect(Collectors.toList());
 		};
 	}
 	
+	public int fieldOrdinal(String fieldId) {
+		return listRankAndFilter.fieldOrdinal(fieldId);
+	}
+	
 	private boolean includeCommand(RankedItem<ContextCommand> rankedItem, InputState inputState) {
 		ContextCommand command = rankedItem.dataItem;
 		if (command.mode == null) return true;
@@ -184,6 +184,7 @@ public class InternalCommandContextProviderFactory {
 		FieldResolver fieldResolver = new FieldResolver<ContextCommand>("name", command -> command.nameResolver.apply(command));
 		kaviPickList.setListContentProvider("context", contextProvider.makeProviderFunction(fieldResolver))
 		            .setRestoreFilterTextOnProviderChange(true)
+		            .setFieldOrdinals(contextProvider::fieldOrdinal)
         				.setResolvedContextAction(( command, provider) -> {
         					command.commandAction.accept(provider, command);
         				})
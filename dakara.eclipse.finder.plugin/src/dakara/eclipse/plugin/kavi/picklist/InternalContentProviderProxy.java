@@ -7,14 +7,18 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import dakara.eclipse.plugin.stringscore.RankedItem;
+import dakara.eclipse.plugin.stringscore.WorkPool;
 
 public class InternalContentProviderProxy<U> {
 	public enum RowState {
@@ -42,6 +46,12 @@ public class InternalContentProviderProxy<U> {
 	private Function<Stream<RankedItem<U>>, Stream<RankedItem<U>>> sortResolverFn;
 	private final Map<String, Function<Stream<RankedItem<U>>, Stream<RankedItem<U>>>> filterResolvers = new HashMap<>();
 	private Function<InputCommand, Integer> debounceTimeProvider;
+	// moving average of the time to rank, by filterable characters.  Short filters match more and take longer.
+	private final double[] rankingMillisByFilterLength = {-1, -1, -1, -1};
+	private static final double RANKING_TIME_SMOOTHING = 0.3;
+	// from a keystroke to its results on screen, rankings which take longer than this are debounced
+	private static final int KEYSTROKE_TO_RENDER_TARGET_MILLIS = 50;
+	private static final int MAX_DEBOUNCE_MILLIS = 200;
 
 	public InternalContentProviderProxy(@SuppressWarnings("rawtypes") KaviList kaviList, String name,	Function<InputState, List<RankedItem<U>>> listContentProvider) {
 		this.name = name;
@@ -67,14 +77,56 @@ public class InternalContentProviderProxy<U> {
 		return this;
 	}
 	
+	/*
+	 * Each searchable column shows the scores of the ranked field with the column's id.  See ListRankAndFilter.fieldOrdinal
+	 */
+	public InternalContentProviderProxy<U> setFieldOrdinals(ToIntFunction<String> fieldOrdinalResolver) {
+		kaviListColumns.setFieldOrdinalResolver(fieldOrdinalResolver);
+		return this;
+	}
+	
 	public InternalContentProviderProxy<U> setDebounceTimeProvider(Function<InputCommand, Integer> debounceTimeProvider) {
 		this.debounceTimeProvider = debounceTimeProvider;
 		return this;
 	}
 	
+	/*
+	 * Without a debounce time provider the debounce follows the ranking times reported with recordRankingTime.
+	 * While ranking fits in the keystroke to render target every keystroke is refreshed.  A slower ranking is
+	 * debounced by the time it goes over the target, so a burst of typing starts fewer rankings which are
+	 * thrown away.  Nothing is debounced until a ranking time has been reported.
+	 */
 	public int calculateDebounceTime(InputCommand command) {
-		if (debounceTimeProvider == null) return 0;
-		return debounceTimeProvider.apply(command);
+		if (debounceTimeProvider != null) return debounceTimeProvider.apply(command);
+		final double rankingMillis = estimatedRankingMillis(command);
+		if (rankingMillis <= KEYSTROKE_TO_RENDER_TARGET_MILLIS) return 0;
+		return (int) Math.min(MAX_DEBOUNCE_MILLIS, Math.round(rankingMillis - KEYSTROKE_TO_RENDER_TARGET_MILLIS));
+	}
+	
+	private static int filterLengthBucket(InputCommand command) {
+		return Math.min(command.countFilterableCharacters(), 3);
+	}
+	
+	/*
+	 * Time taken to rank the whole list for the command.  See ListRankAndFilter.withRankingTimeListener
+	 */
+	public synchronized void recordRankingTime(InputCommand command, long rankingNanos) {
+		final int bucket = filterLengthBucket(command);
+		final double rankingMillis = rankingNanos / 1000000d;
+		final double previous = rankingMillisByFilterLength[bucket];
+		rankingMillisByFilterLength[bucket] = previous < 0 ? rankingMillis : previous + RANKING_TIME_SMOOTHING * (rankingMillis - previous);
+	}
+	
+	/*
+	 * Until a filter length has been measured the nearest measured length is used, shorter lengths first as they are the slower ones.
+	 */
+	private synchronized double estimatedRankingMillis(InputCommand command) {
+		final int bucket = filterLengthBucket(command);
+		for (int distance = 0; distance < rankingMillisByFilterLength.length; distance++) {
+			if (bucket - distance >= 0 && rankingMillisByFilterLength[bucket - distance] >= 0) return rankingMillisByFilterLength[bucket - distance];
+			if (bucket + distance < rankingMillisByFilterLength.length && rankingMillisByFilterLength[bucket + distance] >= 0) return rankingMillisByFilterLength[bucket + distance];
+		}
+		return -1;
 	}
 
 	public InternalContentProviderProxy<U> setRestoreFilterTextOnProviderChange(boolean restoreOnChange) {
@@ -98,31 +150,47 @@ public class InternalContentProviderProxy<U> {
 	}
 	
 	public InternalContentProviderProxy<U> updateTableEntries(InputState inputState) {
+		final InputState stateBeforeUpdate = previousInputState;
+		final List<RankedItem<U>> entriesBeforeUpdate = tableEntries;
+		final int cursorBeforeUpdate = rowCursorIndex;
 		final boolean filterChanged = filterChanged(inputState);
 		
 		if (filterChanged) rowCursorIndex = 0;
 		
 		if (!showAllWhenNoFilter && inputState.inputCommand.filterText.length() == 0 && !inputState.inputCommand.fastSelect) setTableEntries(new ArrayList<>());
 		else if (!filterChanged) return this;
-		else setTableEntries(listContentProvider.apply(inputState));
+		else {
+			try {
+				setTableEntries(listContentProvider.apply(inputState));
+			} catch (CancellationException e) {
+				// back to the previous input and its entries, a partial result of this input may have been published
+				previousInputState = stateBeforeUpdate;
+				tableEntries = entriesBeforeUpdate;
+				rowCursorIndex = cursorBeforeUpdate;
+				throw e;
+			}
+		}
 		return this;
 	}
 	
 	public InternalContentProviderProxy<U> refreshFromContentProvider() {
-		setTableEntries(listContentProvider.apply(previousInputState));
+		setTableEntries(listContentProvider.apply(previousInputState.uncancellable()));
 		return this;
 	}
 	
 	public InternalContentProviderProxy<U> setTableEntries(List<RankedItem<U>> tableEntries) {
-		// TODO optimize and only create a stream when necessary
-		Stream<RankedItem<U>> tableStream = tableEntries.parallelStream();
-		if (sortResolverFn != null) {
-			tableStream = sortResolverFn.apply(tableStream);
+		// Keep the list as given when there is nothing to apply.  Ranked lists are only sorted as far as
+		// the table reads them, copying would sort all of it.
+		if (sortResolverFn == null && filterResolvers.isEmpty()) {
+			this.tableEntries = tableEntries;
+			return this;
 		}
-		
-		tableStream = applyFilters(tableStream);
-		
-		this.tableEntries = tableStream.collect(Collectors.toList());
+		this.tableEntries = WorkPool.RANKING.call(tableEntries.stream(), tableEntries.size(), tableStream -> {
+			if (sortResolverFn != null) {
+				tableStream = sortResolverFn.apply(tableStream);
+			}
+			return applyFilters(tableStream).collect(Collectors.toList());
+		});
 		return this;
 	}
 	
@@ -270,7 +338,7 @@ public class InternalContentProviderProxy<U> {
 		int state = 0;
 		if (selectedEntries.contains(item))
 			state |= RowState.SELECTED.value;
-		if (rowCursorIndex > -1 && tableEntries.indexOf(item) == rowCursorIndex)
+		if (rowCursorIndex > -1 && rowCursorIndex < tableEntries.size() && tableEntries.get(rowCursorIndex).equals(item))
 			state |= RowState.CURSOR.value;
 
 		return state;
@@ -370,7 +438,18 @@ public class InternalContentProviderProxy<U> {
 		}
 		
 		BiFunction<U, Integer, String> contentFn = getKaviListColumns().getColumnOptions().get(1).getColumnContentFn();
-		sortResolverFn = stream -> stream.sorted(Comparator.comparing(item -> contentFn.apply(item.dataItem, 0)));
+		sortResolverFn = stream -> sortByKey(stream, item -> contentFn.apply(item.dataItem, 0));
 		return this;
 	}
+	
+	/*
+	 * Resolve the sort key once per item, not on every comparison
+	 */
+	private static <U> Stream<RankedItem<U>> sortByKey(Stream<RankedItem<U>> stream, Function<RankedItem<U>, String> sortKeyFn) {
+		final List<RankedItem<U>> items = stream.collect(Collectors.toList());
+		final String[] sortKeys = (stream.isParallel() ? items.parallelStream() : items.stream()).map(sortKeyFn).toArray(String[]::new);
+		return IntStream.range(0, sortKeys.length).boxed().
+				sorted(Comparator.comparing((Integer position) -> sortKeys[position])).
+				map(items::get);
+	}
 }
@@ -4,6 +4,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -33,8 +36,12 @@ import org.eclipse.swt.widgets.Text;
 import dakara.eclipse.finder.plugin.handlers.Constants;
 import dakara.eclipse.plugin.baseconverter.Base26AlphaBijectiveConverter;
 import dakara.eclipse.plugin.log.EclipsePluginLogger;
+import dakara.eclipse.plugin.stringscore.CancellationToken;
 import dakara.eclipse.plugin.stringscore.RankedItem;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 import io.reactivex.subjects.PublishSubject;
 
 public class KaviList<T> {
@@ -57,9 +64,19 @@ public class KaviList<T> {
 	private Display display;
 	private LocalResourceManager resourceManager = new LocalResourceManager(JFaceResources.getResources());
 	
-	private PublishSubject<String> subjectFilter = PublishSubject.create();
-	private Disposable subscriber;
-	private int debounceTime = -1;
+	private final PublishSubject<RefreshRequest> refreshRequests = PublishSubject.create();
+	private Disposable refreshSubscription;
+	// refreshes run one at a time on their own thread, so a new one only waits for the cancelled one to stop
+	private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "kavi-list-refresh");
+		thread.setDaemon(true);
+		return thread;
+	});
+	// as a plain executor, so a dropped refresh is cancelled through its token and the thread is never interrupted
+	private final Scheduler refreshScheduler = Schedulers.from(refreshExecutor::execute);
+	private volatile RefreshRequest latestRequest = null;
+	// bumped by explicit refreshes, so they are not dropped as repeats of the same filter
+	private int refreshGeneration = 0;
 
 	public KaviList(KaviPickListDialog<T> rapidInputPickList) {
 		this.rapidInputPickList = rapidInputPickList;
@@ -80,20 +97,53 @@ public class KaviList<T> {
 		return contentProvider;
 	}
 
+	/*
+	 * Called on the UI thread as the filter is typed.  The key and modify listeners can both request the same filter,
+	 * repeats are dropped.  A distinct request stops the previous one right away, before its debounce, it is stale now.
+	 */
 	public void requestRefresh(String filter) {
-		int newDebounceTime = contentProvider().calculateDebounceTime(InputCommand.parse(filter));
-		if (debounceTime != newDebounceTime) {
-			// TODO - when we dispose, there might have been work in progress by the subscriber
-			// creating a new subscriber will not know about the unfinished work
-			// so an event will get sent to the subscriber possibly causing parallel execution
-			// work around is to synchronize the calling method handleRefresh
-			// but I would like to find out if there is a better rxJava way of handling this.
-			if (subscriber != null) subscriber.dispose();
-			subscriber = subjectFilter.debounce(newDebounceTime, TimeUnit.MILLISECONDS).subscribe(f -> handleRefresh(f));		
-			debounceTime = newDebounceTime;
-		}
-
-		subjectFilter.onNext(filter);
+		requestRefresh(filter, refreshGeneration);
+	}
+	
+	/*
+	 * Refresh even when the filter and provider are the same as the last request, such as after switching providers
+	 */
+	public void requestExplicitRefresh(String filter) {
+		requestRefresh(filter, ++refreshGeneration);
+	}
+	
+	private void requestRefresh(String filter, int generation) {
+		// parsed once here, the refresh thread uses the same command
+		final InputCommand inputCommand = InputCommand.parse(filter);
+		RefreshRequest request = new RefreshRequest(filter, inputCommand, contentProvider(), generation, contentProvider().calculateDebounceTime(inputCommand));
+		final RefreshRequest previousRequest = latestRequest;
+		if (request.equals(previousRequest)) return;
+		if (previousRequest != null) previousRequest.cancellation.cancel();
+		latestRequest = request;
+		refreshRequests.onNext(request);
+	}
+	
+	/*
+	 * One pipeline for the life of the list.  Each request is debounced by its own time.  switchMap drops the result
+	 * of a refresh once a newer request comes through, and only the result of the latest request is shown.
+	 */
+	private Disposable subscribeToRefreshRequests() {
+		return refreshRequests.
+				debounce(request -> Observable.timer(request.debounceTime, TimeUnit.MILLISECONDS)).
+				switchMap(this::refreshInBackground).
+				subscribe(result -> {
+					if (!display.isDisposed()) display.asyncExec(() -> showRefreshResult(result));
+				});
+	}
+	
+	private Observable<RefreshResult> refreshInBackground(RefreshRequest request) {
+		return Observable.<RefreshResult>create(emitter -> {
+					RefreshResult result = handleRefresh(request, request.cancellation);
+					if (result != null) emitter.onNext(result);
+					emitter.onComplete();
+				}).
+				subscribeOn(refreshScheduler).
+				doOnDispose(request.cancellation::cancel);
 	}
 	
 	public void setFastSelectAction(BiConsumer<Set<RankedItem<T>>, InputCommand> fastSelectAction) {
@@ -101,27 +151,57 @@ public class KaviList<T> {
 	}
 
 	/*
-	 * This will be executed on rxJava thread due to debouncing
+	 * This will be executed on the refresh thread.
 	 * We will handle the computations of filtering on the background thread
 	 * and must let SWT handle the table updates on the UI thread.
 	 * 
-	 * This is synchronized due to disposing of the rxJava subscriber can result
-	 * in the new subscriber getting called before the previous subscriber has finished work.
+	 * Returns null when there is nothing to show, such as when a newer request cancelled this one.
 	 */
-	private synchronized void handleRefresh(String filter) {
+	private RefreshResult handleRefresh(RefreshRequest request, CancellationToken cancellation) {
 		try {
-			if (table == null) return;
-			final InputCommand inputCommand = InputCommand.parse(filter);
-			InputState inputState = new InputState(inputCommand, contentProvider(), previousProvider);
-			List<RankedItem<T>> tableEntries = contentProvider().updateTableEntries(inputState).getTableEntries();
-			if (contentChanged(tableEntries)) {
-				alphaColumnConverter = new Base26AlphaBijectiveConverter(tableEntries.size());
-				display.asyncExec(() -> doTableRefresh(tableEntries));
-			}
-			
-			display.asyncExec(() -> fastSelectItem(inputCommand));
+			if (table == null) return null;
+			cancellation.throwIfCancelled();
+			InputState inputState = new InputState(request.inputCommand, contentProvider(), previousProvider, partialResult -> showPartialResult(request, cancellation, partialResult), cancellation);
+			return new RefreshResult(request, request.inputCommand, contentProvider().updateTableEntries(inputState).getTableEntries());
+		} catch (CancellationException e) {
+			// newer input was typed, its refresh will update the table.  Until then the table shows the entries the
+			// provider went back to, not a partial result of this pass.
+			if (!display.isDisposed()) display.asyncExec(() -> showTableEntries(contentProvider().getTableEntries()));
 		} catch (Throwable e) {
-			logger.error("Problem occurred refreshing content with filter '" +filter+ "'", e);
+			logger.error("Problem occurred refreshing content with filter '" +request.filter+ "'", e);
+		}
+		return null;
+	}
+	
+	private void showRefreshResult(RefreshResult result) {
+		if (!result.request.equals(latestRequest)) return; // more was typed, its result is on the way
+		showTableEntries(result.tableEntries);
+		fastSelectItem(result.inputCommand);
+	}
+	
+	/*
+	 * Called on the refresh thread when ranking is over its latency budget.
+	 * The best results so far are shown until the complete result replaces them.
+	 * Nothing is shown for a request which is stale, here or by the time the UI thread gets to it.
+	 */
+	@SuppressWarnings("unchecked")
+	private void showPartialResult(RefreshRequest request, CancellationToken cancellation, @SuppressWarnings("rawtypes") List partialResult) {
+		if (isStale(request, cancellation)) return;
+		List<RankedItem<T>> tableEntries = contentProvider().setTableEntries(partialResult).getTableEntries();
+		if (display.isDisposed()) return;
+		display.asyncExec(() -> {
+			if (!isStale(request, cancellation)) showTableEntries(tableEntries);
+		});
+	}
+	
+	private boolean isStale(RefreshRequest request, CancellationToken cancellation) {
+		return cancellation.isCancelled() || !request.equals(latestRequest);
+	}
+	
+	private void showTableEntries(List<RankedItem<T>> tableEntries) {
+		if (contentChanged(tableEntries)) {
+			alphaColumnConverter = new Base26AlphaBijectiveConverter(tableEntries.size());
+			doTableRefresh(tableEntries);
 		}
 	}
 	
@@ -231,8 +311,7 @@ public class KaviList<T> {
 		});
 		composite.getShell().addListener(SWT.Resize, event ->  autoAdjustColumnWidths(composite));
 		
-		// TODO try throttleLast or custom scheduler
-		//subjectFilter.debounce(0, TimeUnit.MILLISECONDS).subscribe( filter -> handleRefresh(filter));
+		refreshSubscription = subscribeToRefreshRequests();
 
 	}
 
@@ -306,7 +385,7 @@ public class KaviList<T> {
 					e.doit = false;
 					toggleInternalCommands();
 					table.getParent().getShell().setRedraw(false);
-					requestRefresh(( (Text) e.widget).getText());
+					requestExplicitRefresh(( (Text) e.widget).getText());
 					display.asyncExec(() -> table.getParent().getShell().setRedraw(true));					
 				}				
 				switch (e.keyCode) {
@@ -327,7 +406,7 @@ public class KaviList<T> {
 				case SWT.TAB:
 					nextContentMode();
 					table.getParent().getShell().setRedraw(false);
-					requestRefresh(( (Text) e.widget).getText());
+					requestExplicitRefresh(( (Text) e.widget).getText());
 					display.asyncExec(() -> table.getParent().getShell().setRedraw(true));
 					break;
 				}
@@ -443,6 +522,11 @@ public class KaviList<T> {
 	}
 	
 	private void dispose(DisposeEvent e) {
+		if (refreshSubscription != null) {
+			refreshSubscription.dispose();
+			refreshSubscription = null;
+		}
+		refreshExecutor.shutdownNow();
 		if (resourceManager != null) {
 			resourceManager.dispose();
 			resourceManager = null;
@@ -473,4 +557,52 @@ public class KaviList<T> {
 	}
 
 
+	
+	/*
+	 * A filter typed into a content provider.  The same filter is a new request after switching providers
+	 * or in a new generation of explicit refreshes.
+	 */
+	private static class RefreshRequest {
+		final String filter;
+		final InputCommand inputCommand;
+		@SuppressWarnings("rawtypes")
+		final InternalContentProviderProxy provider;
+		final int generation;
+		final int debounceTime;
+		// cancelled when a newer request is made, or when its refresh is dropped
+		final CancellationToken cancellation = new CancellationToken();
+		
+		@SuppressWarnings("rawtypes")
+		RefreshRequest(String filter, InputCommand inputCommand, InternalContentProviderProxy provider, int generation, int debounceTime) {
+			this.filter = filter;
+			this.inputCommand = inputCommand;
+			this.provider = provider;
+			this.generation = generation;
+			this.debounceTime = debounceTime;
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof RefreshRequest)) return false;
+			RefreshRequest otherRequest = (RefreshRequest) other;
+			return filter.equals(otherRequest.filter) && provider == otherRequest.provider && generation == otherRequest.generation;
+		}
+		
+		@Override
+		public int hashCode() {
+			return (filter.hashCode() * 31 + System.identityHashCode(provider)) * 31 + generation;
+		}
+	}
+	
+	private class RefreshResult {
+		final RefreshRequest request;
+		final InputCommand inputCommand;
+		final List<RankedItem<T>> tableEntries;
+		
+		RefreshResult(RefreshRequest request, InputCommand inputCommand, List<RankedItem<T>> tableEntries) {
+			this.request = request;
+			this.inputCommand = inputCommand;
+			this.tableEntries = tableEntries;
+		}
+	}
 }
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 import org.eclipse.jface.resource.FontDescriptor;
 import org.eclipse.jface.resource.JFaceResources;
@@ -35,6 +36,7 @@ public class KaviListColumns<T> {
 	private final List<ColumnOptions<T>> columnOptions = new ArrayList<>();
 	private final TableViewer tableViewer;
 	private final Function<RankedItem<T>, Integer> rowStateResolver;
+	private ToIntFunction<String> fieldOrdinalResolver = null;
 	public KaviListColumns(TableViewer tableViewer, Function<RankedItem<T>, Integer> rowStateResolver) {
 		this.tableViewer = tableViewer;
 		this.rowStateResolver = rowStateResolver;
@@ -53,7 +55,7 @@ public class KaviListColumns<T> {
 	        		final RankedItem<T> rankedItem = applyCellDefaultStyles(options, cell);
 	        		resolveCellTextValue(columnContentFn, cell, rankedItem);
 	        		if (options.isSearchable())
-	        			applyCellScoreMatchStyles(cell, rankedItem);
+	        			applyCellScoreMatchStyles(options, cell, rankedItem);
 	        		super.update(cell);
 	        	}
 			@Override
@@ -91,13 +93,29 @@ public class KaviListColumns<T> {
 		return this;
 	}
 	
+	/*
+	 * Finds the ordinal of the ranked field for a column id, so a searchable column shows the scores of its own field
+	 */
+	public KaviListColumns<T> setFieldOrdinalResolver(ToIntFunction<String> fieldOrdinalResolver) {
+		this.fieldOrdinalResolver = fieldOrdinalResolver;
+		return this;
+	}
+	
 	public KaviListColumns<T> installColumnsIntoTable() {
 		for (ColumnOptions<T> columnOption : columnOptions) {
 			columnOption.setColumn(createTableViewerColumn(tableViewer, columnOption.getLabelProvider()).getColumn());
+			if (columnOption.isSearchable()) columnOption.setFieldOrdinal(fieldOrdinalOf(columnOption));
 		}
 		return this;
 	}
 	
+	private int fieldOrdinalOf(ColumnOptions<T> columnOption) {
+		if (fieldOrdinalResolver == null) throw new IllegalStateException("No field ordinals for searchable column: " + columnOption.columnId);
+		final int fieldOrdinal = fieldOrdinalResolver.applyAsInt(columnOption.columnId);
+		if (fieldOrdinal < 0) throw new IllegalStateException("No ranked field for searchable column: " + columnOption.columnId);
+		return fieldOrdinal;
+	}
+	
 	public int totalColumnWidth() {
 		int width = 0;
 		for(ColumnOptions<T> options : columnOptions) {
@@ -164,8 +182,8 @@ public class KaviListColumns<T> {
 	private void resolveCellTextValue(BiFunction<T, Integer, String> columnContentFn, ViewerCell cell, final RankedItem<T> rankedItem) {
 		cell.setText(columnContentFn.apply(rankedItem.dataItem, tableViewer.getTable().indexOf((TableItem) cell.getItem())));
 	}	
-	private void applyCellScoreMatchStyles(ViewerCell cell, final RankedItem<T> rankedItem) {
-		Score score = rankedItem.getColumnScore(getColumnIdFromColumnIndex(cell.getColumnIndex()));
+	private void applyCellScoreMatchStyles(ColumnOptions<T> options, ViewerCell cell, final RankedItem<T> rankedItem) {
+		Score score = rankedItem.getColumnScore(options.getFieldOrdinal());
 		if (score != null) {
 			// TODO - investigate performance options
 			// this is currently the bottle neck in UI performance.  Creating and setting styles.
@@ -173,14 +191,6 @@ public class KaviListColumns<T> {
 		}
 	}
 	
-	private String getColumnIdFromColumnIndex(int columnIndex) {
-		// TODO consider: likely there will never be lots of columns.  Looping is probably optimal here vs a lookup table.
-		for (ColumnOptions<T> options : columnOptions) {
-			if (options.columnIndex == columnIndex) return options.columnId;
-		}
-		throw new IllegalStateException("No matching column index");
-	}
-	
     private StyleRange[] createStyles(List<Integer> matches) {
 	    	List<StyleRange> styles = new ArrayList<StyleRange>();
 	    	for (Integer match : matches) {
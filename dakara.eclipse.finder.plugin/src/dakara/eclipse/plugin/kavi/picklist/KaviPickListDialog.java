@@ -70,7 +70,7 @@ public class KaviPickListDialog<T> extends PopupDialog {
 	@Override
 	public int open() {
 		int openResult = super.open();
-		kaviList.requestRefresh("");
+		kaviList.requestExplicitRefresh("");
 		return openResult;
 	}
 	
@@ -42,6 +42,7 @@ import org.eclipse.ui.PartInitException;
 
 import dakara.eclipse.finder.plugin.handlers.Constants;
 import dakara.eclipse.plugin.log.EclipsePluginLogger;
+import dakara.eclipse.plugin.stringscore.WorkPool;
 
 
 public class EclipseWorkbench {
@@ -107,10 +108,11 @@ public class EclipseWorkbench {
 		IJavaSearchScope scope = BasicSearchEngine.createWorkspaceScope();
 		PatternSearchJob job = new PatternSearchJob(null, SearchEngine.getDefaultSearchParticipant(), scope, null);
 		List<Index> selectedIndexes = new ArrayList<>(Arrays.asList(job.getIndexes(null)));
-		List<ResourceItem> files = selectedIndexes.stream().parallel()
+		// few indexes but each is slow to read, so always in parallel on the indexing pool
+		List<ResourceItem> files = WorkPool.INDEXING.call(() -> selectedIndexes.stream().parallel()
 				.flatMap(index -> {
 					return addResourceForIndexEntry(getIndexEntries(index), index).stream();
-				}).collect(Collectors.toList());
+				}).collect(Collectors.toList()));
 		
 		return files;
 	}
@@ -119,8 +121,8 @@ public class EclipseWorkbench {
 		IJavaSearchScope scope = BasicSearchEngine.createWorkspaceScope();
 		PatternSearchJob job = new PatternSearchJob(null, SearchEngine.getDefaultSearchParticipant(), scope, null);
 		List<Index> selectedIndexes = new ArrayList<>(Arrays.asList(job.getIndexes(null)));
-		boolean isChanged = selectedIndexes.stream().parallel()
-			.anyMatch(index -> index.getIndexLastModified() > sinceTime);
+		boolean isChanged = WorkPool.INDEXING.call(() -> selectedIndexes.stream().parallel()
+			.anyMatch(index -> index.getIndexLastModified() > sinceTime));
 
 		return isChanged;
 	}
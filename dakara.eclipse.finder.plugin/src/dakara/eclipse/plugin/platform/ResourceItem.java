@@ -1,9 +1,13 @@
 package dakara.eclipse.plugin.platform;
 
+import org.eclipse.core.runtime.Path;
+
 public class ResourceItem {
 	public final String name;
 	public final String path;
 	public final String project;
+	// path as shown and searched.  Worked out once here, the path column is read for every item on every keystroke
+	public final String displayPath;
 	public ResourceItem(String name, String path, String project) {
 		if (name == null) name = "";
 		if (path == null) path = "";
@@ -12,6 +16,28 @@ public class ResourceItem {
 		this.name = name;
 		this.path = path;
 		this.project = project;
+		this.displayPath = displayPathOf(path);
+	}
+	
+	/*
+	 * Classes in jars have the jar path and the class path separated by |.  Shown as the jar name and the package path.
+	 * Any other path is shown as it is, every item of the workspace is made through here.
+	 */
+	static String displayPathOf(String jarPathAndClass) {
+		final int locationOfSeparator = jarPathAndClass.indexOf("|");
+		if (locationOfSeparator < 0) {
+			return jarPathAndClass;
+		}
+		Path path =new Path(jarPathAndClass.substring(0, locationOfSeparator));
+		if(path.isEmpty()) {
+			return jarPathAndClass;
+		}
+		Path path2 = new Path(jarPathAndClass);
+		if (path.lastSegment() == null || path2.lastSegment() == null) return jarPathAndClass;
+		final int jarStart = jarPathAndClass.indexOf(path.lastSegment());
+		final int classStart = jarPathAndClass.indexOf(path2.lastSegment());
+		if (jarStart < 0 || classStart < jarStart) return jarPathAndClass;
+		return jarPathAndClass.substring(jarStart, classStart);
 	}
 	
 	@Override
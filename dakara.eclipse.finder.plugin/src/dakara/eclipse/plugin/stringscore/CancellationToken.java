@@ -0,0 +1,28 @@
+package dakara.eclipse.plugin.stringscore;
+
+import java.util.concurrent.CancellationException;
+
+/*
+ * Lets a ranking pass be stopped once its result is no longer wanted, such as when more has been typed.
+ * The pass checks the token between chunks of work and stops with a CancellationException.
+ */
+public class CancellationToken {
+	// for passes which are never cancelled
+	public static final CancellationToken NONE = new CancellationToken() {
+		@Override
+		public void cancel() {}
+	};
+	private volatile boolean cancelled = false;
+
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public void throwIfCancelled() {
+		if (cancelled) throw new CancellationException();
+	}
+}
@@ -1,24 +1,51 @@
 package dakara.eclipse.plugin.stringscore;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import dakara.eclipse.plugin.kavi.picklist.InputCommand;
-import dakara.eclipse.plugin.stringscore.RankedItem.RankedItemFactory;
 import dakara.eclipse.plugin.stringscore.StringScore.Score;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 public class ListRankAndFilter<T> {
+	private static final Score NO_MATCH_SCORE = new Score(0, new IntArrayList(0));
+	private static final int WAVE_SIZE = 16384;
+	// candidates scored together by one worker.  Small enough for the chunks to spread evenly over the workers
+	private static final int CHUNK_SIZE = 1024;
+	private static final int UNRANKED = Integer.MIN_VALUE;
 	private List<FieldResolver<T>> fields = new ArrayList<>();
-	private BiFunction<ScoreFilterOptions, String, Score> rankingStrategy;
+	private BiFunction<ScoreFilterOptions, StringCursorPrimitive, Score> rankingStrategy;
+	// same ranks as the ranking strategy, the matched chars may be left out
+	private BiFunction<ScoreFilterOptions, StringCursorPrimitive, Score> rankOnlyStrategy;
 	private Function<T, String> sortFieldResolver;
+	private volatile SearchCorpus<T> corpus = null;
+	private volatile PreviousMatches<T> previousMatches = null;
+	private boolean useTrigramIndex = false;
+	private long latencyBudgetNanos = 0;
+	private volatile ObjLongConsumer<InputCommand> rankingTimeListener = null;
+	// results are shared with the callers, who must not modify them
+	private final RankedResultCache<RankedResult<T>> rankedResults = new RankedResultCache<>(32, 500_000, result -> result.rankedItems.size() + 1);
+	private final RankedResultCache<RankedResult<T>> orderedResults = new RankedResultCache<>(32, 500_000, result -> result.rankedItems.size() + 1);
 	
-	public ListRankAndFilter(BiFunction<ScoreFilterOptions, String, Score> rankingStrategy, Function<T, String> sortFieldResolver) {
+	public ListRankAndFilter(BiFunction<ScoreFilterOptions, StringCursorPrimitive, Score> rankingStrategy, Function<T, String> sortFieldResolver) {
+		this(rankingStrategy, rankingStrategy, sortFieldResolver);
+	}
+	
+	/*
+	 * Items are ranked with the rank only strategy.  The ranking strategy is only used again for the matched chars
+	 * of the rows which are displayed.
+	 */
+	public ListRankAndFilter(BiFunction<ScoreFilterOptions, StringCursorPrimitive, Score> rankingStrategy, BiFunction<ScoreFilterOptions, StringCursorPrimitive, Score> rankOnlyStrategy, Function<T, String> sortFieldResolver) {
 		this.rankingStrategy = rankingStrategy;
+		this.rankOnlyStrategy = rankOnlyStrategy;
 		this.sortFieldResolver = sortFieldResolver;
 	}
 	
@@ -26,38 +53,264 @@ public class ListRankAndFilter<T> {
 		StringScore stringScore = new StringScore(StringScoreRanking.standardContiguousSequenceRanking(), StringScoreRanking.standardAcronymRanking(), StringScoreRanking.standardNonContiguousSequenceRanking());
 		return new ListRankAndFilter<>(
 				(filter, columnText) -> stringScore.parseMatchAndScore(filter, columnText),
+				(filter, columnText) -> stringScore.parseMatchAndRank(filter, columnText),
 				sortFieldResolver);
 	}
 	
+	private static final class PreviousMatches<T> {
+		final SearchCorpus<T> corpus;
+		final InputCommand inputCommand;
+		// indexes of the matched items with their ranks, in list order
+		final int[] matchedItems;
+		final int[] ranks;
+		PreviousMatches(SearchCorpus<T> corpus, InputCommand inputCommand, int[] matchedItems, int[] ranks) {
+			this.corpus = corpus;
+			this.inputCommand = inputCommand;
+			this.matchedItems = matchedItems;
+			this.ranks = ranks;
+		}
+	}
+	
+	private static final class RankedResult<T> {
+		final PreviousMatches<T> matches;
+		final List<RankedItem<T>> rankedItems;
+		RankedResult(PreviousMatches<T> matches, List<RankedItem<T>> rankedItems) {
+			this.matches = matches;
+			this.rankedItems = rankedItems;
+		}
+	}
+	
+	/*
+	 * Fields are numbered in the order they are added.  RankedItem.getColumnScore reads a field's score by that ordinal.
+	 */
 	public ListRankAndFilter<T> addField(String fieldId, Function<T, String> fieldResolver) {
+		if (fieldOrdinal(fieldId) >= 0) throw new IllegalArgumentException("Field already added: " + fieldId);
 		fields.add(new FieldResolver<>(fieldId, fieldResolver));
+		corpus = null;
+		return this;
+	}
+	
+	/*
+	 * Ordinal of the field with the id, or -1 when there is no such field
+	 */
+	public int fieldOrdinal(String fieldId) {
+		for (int fieldOrdinal = 0; fieldOrdinal < fields.size(); fieldOrdinal++) {
+			if (fields.get(fieldOrdinal).fieldId.equals(fieldId)) return fieldOrdinal;
+		}
+		return -1;
+	}
+	
+	/*
+	 * Field text is analyzed once per item list and reused for every query against it.
+	 * Providers whose field text can change without the list changing must invalidate.
+	 */
+	public ListRankAndFilter<T> invalidateCorpus() {
+		corpus = null;
 		return this;
 	}
+	
+	/*
+	 * Literal and multi word filters only score the items found in a trigram index of the list.
+	 * Worth it for large lists which are filtered many times.
+	 */
+	public ListRankAndFilter<T> withTrigramIndex() {
+		useTrigramIndex = true;
+		return this;
+	}
+	
+	/*
+	 * When ranking takes longer than the budget, the best matches found so far are published to the caller
+	 * of rankAndFilter while the rest of the list is scored.
+	 */
+	public ListRankAndFilter<T> withLatencyBudget(long budgetMillis) {
+		latencyBudgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+		return this;
+	}
+	
+	/*
+	 * The listener gets the time taken to score the whole list for a query.  Cached results, refinements of
+	 * the previous matches and the analysis of a new list are not reported, they don't tell how long a query takes.
+	 */
+	public ListRankAndFilter<T> withRankingTimeListener(ObjLongConsumer<InputCommand> rankingTimeListener) {
+		this.rankingTimeListener = rankingTimeListener;
+		return this;
+	}
+	
+	private SearchCorpus<T> corpusFor(List<T> items) {
+		SearchCorpus<T> currentCorpus = corpus;
+		if (currentCorpus == null || !currentCorpus.isCorpusOf(items)) {
+			currentCorpus = new SearchCorpus<>(items, fields, sortFieldResolver);
+			corpus = currentCorpus;
+			rankedResults.clear();
+			orderedResults.clear();
+		}
+		return currentCorpus;
+	}
+	
+	/*
+	 * Previous results for the same filter text, such as after a backspace.  Results of another corpus are not used.
+	 */
+	private List<RankedItem<T>> cachedResult(RankedResultCache<RankedResult<T>> cache, SearchCorpus<T> corpus, final InputCommand inputCommand) {
+		RankedResult<T> result = cache.get(inputCommand.filterKey(fields.size()));
+		if (result == null || result.matches.corpus != corpus) return null;
+		previousMatches = result.matches;
+		return result.rankedItems;
+	}
+	
+	private List<RankedItem<T>> cacheResult(RankedResultCache<RankedResult<T>> cache, final InputCommand inputCommand, PreviousMatches<T> matches, List<RankedItem<T>> rankedItems) {
+		cache.put(inputCommand.filterKey(fields.size()), new RankedResult<>(matches, rankedItems));
+		return rankedItems;
+	}
 	// TODO - provide version that returns a stream
 	// this will allow better optimization of post filtering and sorting from the internal provider proxy
 	public List<RankedItem<T>> rankAndFilter(final InputCommand inputCommand, List<T> items) {
+		return rankAndFilter(inputCommand, items, null, CancellationToken.NONE);
+	}
+	
+	/*
+	 * partialResults receives the best matches so far when the latency budget runs out before the ranking is done.
+	 * It is called on the calling thread.
+	 * 
+	 * Throws a CancellationException when the token is cancelled before the ranking is done.  Nothing is kept
+	 * from a cancelled pass.
+	 */
+	public List<RankedItem<T>> rankAndFilter(final InputCommand inputCommand, List<T> items, Consumer<List<RankedItem<T>>> partialResults, CancellationToken cancellation) {
 		if (!inputCommand.isColumnFiltering && inputCommand.getColumnFilterOptions(0).rawInputText.length() == 0) return makeRankedList(items);
 
-		return items.parallelStream().
-				       map(item -> new RankedItem<>(item)).
-				       map(item -> setItemRank(item, inputCommand)).
-				       filter(item -> item.totalScore() > 0).
-				       sorted(Comparator.comparing((RankedItem<T> item) -> item.totalScore()).reversed().thenComparing(item -> sortFieldResolver.apply((T) item.dataItem))).
-					   collect(Collectors.toList());
+		final SearchCorpus<T> corpus = corpusFor(items);
+		List<RankedItem<T>> cached = cachedResult(rankedResults, corpus, inputCommand);
+		if (cached != null) return cached;
+		
+		final PreviousMatches<T> matches = rankCandidates(corpus, inputCommand,
+				partialResults == null ? null : partialMatches -> partialResults.accept(sortedByRank(partialMatches, corpus.sortOrdinals(partialMatches.matchedItems))), cancellation);
+		return cacheResult(rankedResults, inputCommand, matches, sortedByRank(matches, corpus.sortOrdinals(matches.matchedItems)));
+	}
+	
+	// bucketed by score, only the rows which are read get sorted
+	private List<RankedItem<T>> sortedByRank(PreviousMatches<T> matches, int[] tieBreakKeys) {
+		return new RankedResultSet<>(matches.corpus::item, matches.matchedItems, matches.ranks, itemIndex -> scoreItem(itemIndex, matches.corpus, matches.inputCommand),
+				matches.inputCommand.isColumnFiltering, new PartialRankOrder(matches.ranks, tieBreakKeys));
 	}
 	
+	/*
+	 * Matches of the same rank keep the order of the list
+	 */
 	public List<RankedItem<T>> rankAndFilterOrdered(final InputCommand inputCommand, List<T> items) {
-		RankedItemFactory<T> rankedItemFactory = new RankedItemFactory<>();
-		List<RankedItem<T>> rankedItems = new ArrayList<>();
-		for (T item : items) {
-			rankedItems.add(rankedItemFactory.make(item));
+		if (!inputCommand.isColumnFiltering && inputCommand.getColumnFilterOptions(0).rawInputText.length() == 0) return makeRankedListOrdered(items);
+		final SearchCorpus<T> corpus = corpusFor(items);
+		List<RankedItem<T>> cached = cachedResult(orderedResults, corpus, inputCommand);
+		if (cached != null) return cached;
+		
+		final PreviousMatches<T> matches = rankCandidates(corpus, inputCommand, null, CancellationToken.NONE);
+		return cacheResult(orderedResults, inputCommand, matches, sortedByRank(matches, matches.matchedItems));
+	}
+	
+	/*
+	 * Scores the candidates and returns those which matched.  The matches are kept so the next input can
+	 * start from them when it refines this one.
+	 * 
+	 * The candidates are split in chunks of index ranges which the ranking pool's workers steal from each other.
+	 * Only the rank of a match is kept, and the chunks are joined back in list order.
+	 * 
+	 * With a latency budget or a cancellation token the candidates are scored a wave at a time, so the time and
+	 * the token can be checked in between.  The matches of the waves done so far are published once when the budget runs out.
+	 */
+	private PreviousMatches<T> rankCandidates(SearchCorpus<T> corpus, final InputCommand inputCommand, Consumer<PreviousMatches<T>> partialMatches, CancellationToken cancellation) {
+		final long startTime = System.nanoTime();
+		final boolean refinement = isRefinementOf(previousMatches, corpus, inputCommand);
+		final int[] candidates = candidateItems(corpus, inputCommand).toArray();
+		// after the trigram index, which is built by the first query of a list
+		final long scoringStartTime = System.nanoTime();
+		final boolean budgeted = partialMatches != null && latencyBudgetNanos > 0;
+		final int waveSize = budgeted || cancellation != CancellationToken.NONE ? WAVE_SIZE : Math.max(1, candidates.length);
+		
+		final int[] valueRanks = inputCommand.isColumnFiltering ? unrankedValues(corpus) : null;
+		final ChunkMatches<T> allMatches = new ChunkMatches<>(Math.min(candidates.length, CHUNK_SIZE));
+		boolean published = !budgeted;
+		for (int waveStart = 0; waveStart < candidates.length; waveStart += waveSize) {
+			cancellation.throwIfCancelled();
+			final int firstChunkStart = waveStart;
+			final int waveEnd = Math.min(candidates.length, waveStart + waveSize);
+			final int chunkCount = (waveEnd - waveStart + CHUNK_SIZE - 1) / CHUNK_SIZE;
+			final List<ChunkMatches<T>> waveMatches = WorkPool.RANKING.call(IntStream.range(0, chunkCount), waveEnd - waveStart, chunks -> chunks.
+				mapToObj(chunk -> scoreChunk(candidates, firstChunkStart + chunk * CHUNK_SIZE, Math.min(waveEnd, firstChunkStart + (chunk + 1) * CHUNK_SIZE), corpus, inputCommand, valueRanks)).
+				collect(Collectors.toList()));
+			for (ChunkMatches<T> chunkMatches : waveMatches) {
+				allMatches.addAll(chunkMatches);
+			}
+			
+			if (!published && waveEnd < candidates.length && System.nanoTime() - startTime > latencyBudgetNanos) {
+				partialMatches.accept(allMatches.toPreviousMatches(corpus, inputCommand));
+				published = true;
+			}
+		}
+		
+		final PreviousMatches<T> matches = allMatches.toPreviousMatches(corpus, inputCommand);
+		previousMatches = matches;
+		final ObjLongConsumer<InputCommand> listener = rankingTimeListener;
+		if (listener != null && !refinement) listener.accept(inputCommand, System.nanoTime() - scoringStartTime);
+		return matches;
+	}
+	
+	/*
+	 * Ranks of the distinct field values for one query, by value id.  Each value is ranked once and the rank is
+	 * shared by all items with that value.  Workers racing on a value both write the same rank.
+	 */
+	private static int[] unrankedValues(SearchCorpus<?> corpus) {
+		final int[] valueRanks = new int[corpus.valueCount()];
+		Arrays.fill(valueRanks, UNRANKED);
+		return valueRanks;
+	}
+	
+	private ChunkMatches<T> scoreChunk(int[] candidates, int start, int end, SearchCorpus<T> corpus, final InputCommand inputCommand, int[] valueRanks) {
+		final ChunkMatches<T> chunkMatches = new ChunkMatches<>(16);
+		for (int candidate = start; candidate < end; candidate++) {
+			final int itemIndex = candidates[candidate];
+			final int rank = rankItem(itemIndex, corpus, inputCommand, valueRanks);
+			if (rank > 0) chunkMatches.add(itemIndex, rank);
+		}
+		return chunkMatches;
+	}
+	
+	/*
+	 * Matched items with their ranks, in list order
+	 */
+	private static final class ChunkMatches<T> {
+		final IntArrayList matchedItems;
+		final IntArrayList ranks;
+		ChunkMatches(int capacity) {
+			matchedItems = new IntArrayList(capacity);
+			ranks = new IntArrayList(capacity);
+		}
+		void add(int itemIndex, int rank) {
+			matchedItems.add(itemIndex);
+			ranks.add(rank);
 		}
-		if (!inputCommand.isColumnFiltering && inputCommand.getColumnFilterOptions(0).rawInputText.length() == 0) return makeRankedListOrdered(rankedItems);
-		return rankedItems.parallelStream().
-				       map(item -> setItemRank(item, inputCommand)).
-				       filter(item -> item.totalScore() > 0).
-				       sorted(Comparator.comparing((RankedItem<T> item) -> item.totalScore()).reversed().thenComparing(item -> item.order)).
-					   collect(Collectors.toList());
+		void addAll(ChunkMatches<T> other) {
+			matchedItems.addAll(other.matchedItems);
+			ranks.addAll(other.ranks);
+		}
+		PreviousMatches<T> toPreviousMatches(SearchCorpus<T> corpus, InputCommand inputCommand) {
+			return new PreviousMatches<>(corpus, inputCommand, matchedItems.toIntArray(), ranks.toIntArray());
+		}
+	}
+	
+	private boolean isRefinementOf(PreviousMatches<T> previous, SearchCorpus<T> corpus, final InputCommand inputCommand) {
+		return previous != null && previous.corpus == corpus && inputCommand.isRefinementOf(previous.inputCommand, fields.size());
+	}
+	
+	private IntStream candidateItems(SearchCorpus<T> corpus, final InputCommand inputCommand) {
+		final PreviousMatches<T> previous = previousMatches;
+		if (isRefinementOf(previous, corpus, inputCommand)) return IntStream.of(previous.matchedItems);
+		if (useTrigramIndex) {
+			List<ScoreFilterOptions> filters = new ArrayList<>();
+			for (int column = 0; column < (inputCommand.isColumnFiltering ? fields.size() : 1); column++) {
+				filters.add(inputCommand.getColumnFilterOptions(column));
+			}
+			int[] candidates = corpus.trigramIndex().candidates(filters);
+			if (candidates != null) return IntStream.of(candidates);
+		}
+		return IntStream.range(0, corpus.size());
 	}
 	
 	public List<RankedItem<T>> moveItem(List<RankedItem<T>> itemList, T item, int order) {
@@ -66,51 +319,92 @@ public class ListRankAndFilter<T> {
 		return filteredList;
 	}
 	
-	private List<RankedItem<T>> makeRankedListOrdered(List<RankedItem<T>> items) {
-		return items.parallelStream().
-	       sorted(Comparator.comparing((item) -> item.order)).
-		   collect(Collectors.toList());
+	private List<RankedItem<T>> makeRankedListOrdered(List<T> items) {
+		final int[] itemIndexes = IntStream.range(0, items.size()).toArray();
+		return new RankedResultSet<>(items::get, itemIndexes, new int[items.size()], null, false, PartialRankOrder.sorted(itemIndexes));
 	}
 	
+	/*
+	 * A corpus of the items already has them in sort order.  Without one only the sort field is read, the corpus
+	 * isn't built until the first filter needs it.
+	 */
 	private List<RankedItem<T>> makeRankedList(List<T> items) {
-		return items.parallelStream().
-	       map(item -> new RankedItem<>(item)).
-	       sorted(Comparator.comparing(item -> sortFieldResolver.apply((T) item.dataItem))).
-		   collect(Collectors.toList());
+		final SearchCorpus<T> currentCorpus = corpus;
+		final int[] sortedItems = currentCorpus != null && currentCorpus.isCorpusOf(items) ? currentCorpus.sortedItems() :
+				SearchCorpus.sortedItems(items, sortFieldResolver, new String[items.size()], WorkPool.RANKING);
+		final int[] itemIndexes = IntStream.range(0, items.size()).toArray();
+		return new RankedResultSet<>(items::get, itemIndexes, new int[items.size()], null, false, PartialRankOrder.sorted(sortedItems));
 	}
 	
-	private RankedItem<T> setItemRank(RankedItem<T> rankedItem, final InputCommand inputCommand) {
+	/*
+	 * Total rank of the item, 0 when it doesn't match.  Same rules as RankedItem.totalScore.
+	 */
+	private int rankItem(int itemIndex, SearchCorpus<T> corpus, final InputCommand inputCommand, int[] valueRanks) {
 		try {
-			rankedItem.setScoreModeByColumn(inputCommand.isColumnFiltering);
-			
 			if (inputCommand.isColumnFiltering) {
-				int searchableColumnCount = 0;
-				for (FieldResolver<T> field : fields) {
-					rankedItem.addScore(rankingStrategy.apply(inputCommand.getColumnFilterOptions(searchableColumnCount), field.fieldResolver.apply(rankedItem.dataItem)), field.fieldId);
-					searchableColumnCount++;
-				} 
+				int totalRank = 0;
+				for (int column = 0; column < fields.size(); column++) {
+					final int rank = rankValue(corpus.fieldValue(itemIndex, column), corpus, inputCommand.getColumnFilterOptions(column), valueRanks);
+					// any column without a match removes the item, no need to rank the rest
+					if (rank == 0) return 0;
+					if (rank > 0) totalRank += rank;
+				}
+				return totalRank;
 			} else {
-				List<Score> scores = scoreAllAsOneColumn(rankedItem, inputCommand);
-				for (FieldResolver<T> field : fields) {
-					rankedItem.addScore(scores.remove(0), field.fieldId);
-				} 
+				final StringCursorPrimitive filter = inputCommand.getColumnFilterOptions(0).filterTextCursorPrimitive;
+				// filter has chars found in none of the columns, skip scoring the joined text
+				if (filter.length() > 0 && !corpus.itemContainsAllCharsOf(itemIndex, filter.charMask())) return 0;
+				return Math.max(0, rankOnlyStrategy.apply(inputCommand.getColumnFilterOptions(0), corpus.rowPrimitive(itemIndex)).rank);
 			}
 		} catch (Throwable e) {
 			e.printStackTrace();
 			// TODO need to figure out how to properly handle
 			// currently since this happens in rxjava thread, we can't throw
+			return 0;
+		}
+	}
+	
+	private int rankValue(int valueId, SearchCorpus<T> corpus, ScoreFilterOptions filterOptions, int[] valueRanks) {
+		if (valueId == SearchCorpus.NO_VALUE) return rankOnlyStrategy.apply(filterOptions, null).rank;
+		int rank = valueRanks[valueId];
+		if (rank == UNRANKED) {
+			rank = rankOnlyStrategy.apply(filterOptions, corpus.valuePrimitive(valueId)).rank;
+			valueRanks[valueId] = rank;
 		}
-		return rankedItem;
+		return rank;
 	}
 	
-	private List<Score> scoreAllAsOneColumn(RankedItem<T> listItem, final InputCommand inputCommand) {
-		IntArrayList indexesOfColumnBreaks = new IntArrayList();
-		StringBuilder allColumnText = new StringBuilder();
-		buildAllColumnTextAndIndexes(listItem, indexesOfColumnBreaks, allColumnText);
+	/*
+	 * Scores of each field with the matched chars, for a matched item which is displayed
+	 */
+	private Score[] scoreItem(int itemIndex, SearchCorpus<T> corpus, final InputCommand inputCommand) {
+		final Score[] scores = new Score[fields.size()];
+		try {
+			if (inputCommand.isColumnFiltering) {
+				for (int column = 0; column < scores.length; column++) {
+					scores[column] = rankingStrategy.apply(inputCommand.getColumnFilterOptions(column), corpus.fieldPrimitive(itemIndex, column));
+				}
+				return scores;
+			} else {
+				return scoreAllAsOneColumn(itemIndex, corpus, inputCommand).toArray(scores);
+			}
+		} catch (Throwable e) {
+			e.printStackTrace();
+			// the row is still shown, without highlights
+			return new Score[0];
+		}
+	}
+	
+	private List<Score> scoreAllAsOneColumn(int itemIndex, SearchCorpus<T> corpus, final InputCommand inputCommand) {
+		final StringCursorPrimitive filter = inputCommand.getColumnFilterOptions(0).filterTextCursorPrimitive;
+		if (filter.length() > 0 && !corpus.itemContainsAllCharsOf(itemIndex, filter.charMask())) {
+			// filter has chars found in none of the columns, skip scoring the joined text
+			return noMatchScores();
+		}
 		
-		Score allColumnScore = rankingStrategy.apply( inputCommand.getColumnFilterOptions(0), allColumnText.toString());
+		Score allColumnScore = rankingStrategy.apply(inputCommand.getColumnFilterOptions(0), corpus.rowPrimitive(itemIndex));
 		if (allColumnScore.rank > 0) {
-			return convertScoreToMatchesPerColumn(allColumnText.toString(), allColumnScore, indexesOfColumnBreaks);
+			return convertScoreToMatchesPerColumn(itemIndex, corpus, allColumnScore);
 		} else {
 			// There was no match.  Add the empty to score to all columns
 			List<Score> scores = new ArrayList<>();
@@ -120,37 +414,32 @@ public class ListRankAndFilter<T> {
 			return scores;
 		}
 	}
+	
+	private List<Score> noMatchScores() {
+		List<Score> scores = new ArrayList<>();
+		for (int index = 0; index < fields.size(); index++) {
+			scores.add(NO_MATCH_SCORE);
+		}
+		return scores;
+	}
 
 	/*
-	 * concatenate all columns together with space separators.
-	 * create list of index's where columns were joined
+	 * Matches in the joined text are in order, so they are split into the columns in one pass
 	 */
-	private void buildAllColumnTextAndIndexes(RankedItem<T> listItem, IntArrayList indexesOfColumnBreaks, StringBuilder allColumnText) {
-		for (int index = 0; index < fields.size(); index++) {
-			FieldResolver<T> column = fields.get(index);
-			String columnContent = column.fieldResolver.apply(listItem.dataItem);
-			allColumnText.append(columnContent);
-			if (index < fields.size() - 1) allColumnText.append(" ");
-			indexesOfColumnBreaks.add(allColumnText.length() - 1);
-		}
-	}	
-	
-	private List<Score> convertScoreToMatchesPerColumn(String originalText, Score allColumnScore, IntArrayList indexesOfColumnBreaks) {
+	private List<Score> convertScoreToMatchesPerColumn(int itemIndex, SearchCorpus<T> corpus, Score allColumnScore) {
 		List<Score> scores = new ArrayList<>();
-		IntArrayList matches = new IntArrayList();
+		int nextMatch = 0;
 		int offset = 0;
 		
-		for (int endOfColumnIndex : indexesOfColumnBreaks) {
-			for (int index = offset; index <= endOfColumnIndex; index++) {
-				if (allColumnScore.matches.size() > 0 && index == allColumnScore.matches.getInt(0)) {
-					allColumnScore.matches.removeInt(0);
-					matches.add(index - offset);
-				}
+		for (int column = 0; column < fields.size(); column++) {
+			final int endOfColumnIndex = corpus.columnBreak(itemIndex, column);
+			IntArrayList matches = new IntArrayList();
+			while (nextMatch < allColumnScore.matches.size() && allColumnScore.matches.getInt(nextMatch) <= endOfColumnIndex) {
+				matches.add(allColumnScore.matches.getInt(nextMatch++) - offset);
 			}
 			scores.add(new Score(allColumnScore.rank, matches));
-			matches = new IntArrayList();
 			offset = endOfColumnIndex + 1;
 		}		
 		return scores;
 	}
-}
+}
\ No newline at end of file
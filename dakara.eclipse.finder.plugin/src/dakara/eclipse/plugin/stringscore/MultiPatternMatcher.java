@@ -0,0 +1,124 @@
+package dakara.eclipse.plugin.stringscore;
+
+import java.util.List;
+
+import it.unimi.dsi.fastutil.chars.Char2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/*
+ * Finds whether any of a set of patterns is in a text with one pass over the text.  Used for the inverse (!) filters,
+ * which were searched one at a time, so a filter with five of them scanned every item five times.
+ *
+ * An Aho-Corasick automaton compiled into a complete transition table.  Only the chars of the patterns get a column
+ * in the table, every other char goes back to the start state.
+ */
+public class MultiPatternMatcher {
+	private static final int NO_STATE = -1;
+	// chars found in no pattern
+	private static final int OTHER_CHAR = 0;
+	private final int[] asciiCharClasses = new int[128];
+	private final Char2IntOpenHashMap charClasses = new Char2IntOpenHashMap();
+	private final int charClassCount;
+	// next state by state and char class
+	private final int[] transitions;
+	// states at the end of a pattern, or with a pattern ending in a suffix of the text read to get there
+	private final boolean[] found;
+	// an empty pattern is in every text
+	private final boolean matchesEverything;
+
+	public MultiPatternMatcher(List<String> patterns) {
+		int nextCharClass = OTHER_CHAR + 1;
+		boolean hasEmptyPattern = false;
+		for (String pattern : patterns) {
+			if (pattern.length() == 0) hasEmptyPattern = true;
+			for (int index = 0; index < pattern.length(); index++) {
+				final char patternChar = pattern.charAt(index);
+				if (charClassOf(patternChar) == OTHER_CHAR) setCharClass(patternChar, nextCharClass++);
+			}
+		}
+		charClassCount = nextCharClass;
+		matchesEverything = hasEmptyPattern;
+
+		// trie of the patterns, NO_STATE where there is no child
+		final IntArrayList trie = new IntArrayList();
+		final IntArrayList patternEnds = new IntArrayList();
+		addState(trie, patternEnds);
+		for (String pattern : patterns) {
+			int state = 0;
+			for (int index = 0; index < pattern.length(); index++) {
+				final int transition = state * charClassCount + charClassOf(pattern.charAt(index));
+				if (trie.getInt(transition) == NO_STATE) trie.set(transition, addState(trie, patternEnds));
+				state = trie.getInt(transition);
+			}
+			patternEnds.set(state, 1);
+		}
+
+		final int stateCount = patternEnds.size();
+		transitions = trie.toIntArray();
+		found = new boolean[stateCount];
+		completeTransitions(stateCount, patternEnds);
+	}
+
+	/*
+	 * Breadth first over the trie, so the failure state of a state is complete before the state is.
+	 * A missing child goes where the failure state goes for the same char.
+	 */
+	private void completeTransitions(int stateCount, IntArrayList patternEnds) {
+		final int[] failures = new int[stateCount];
+		final IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+		for (int charClass = 0; charClass < charClassCount; charClass++) {
+			final int child = transitions[charClass];
+			if (child == NO_STATE) {
+				transitions[charClass] = 0;
+			} else {
+				failures[child] = 0;
+				queue.enqueue(child);
+			}
+		}
+		found[0] = patternEnds.getInt(0) != 0;
+
+		while (!queue.isEmpty()) {
+			final int state = queue.dequeueInt();
+			found[state] = patternEnds.getInt(state) != 0 || found[failures[state]];
+			for (int charClass = 0; charClass < charClassCount; charClass++) {
+				final int transition = state * charClassCount + charClass;
+				final int failureNext = transitions[failures[state] * charClassCount + charClass];
+				if (transitions[transition] == NO_STATE) {
+					transitions[transition] = failureNext;
+				} else {
+					failures[transitions[transition]] = failureNext;
+					queue.enqueue(transitions[transition]);
+				}
+			}
+		}
+	}
+
+	private int addState(IntArrayList trie, IntArrayList patternEnds) {
+		for (int charClass = 0; charClass < charClassCount; charClass++) {
+			trie.add(NO_STATE);
+		}
+		patternEnds.add(0);
+		return patternEnds.size() - 1;
+	}
+
+	private void setCharClass(char patternChar, int charClass) {
+		if (patternChar < asciiCharClasses.length) asciiCharClasses[patternChar] = charClass;
+		else charClasses.put(patternChar, charClass);
+	}
+
+	private int charClassOf(char textChar) {
+		if (textChar < asciiCharClasses.length) return asciiCharClasses[textChar];
+		return charClasses.get(textChar);
+	}
+
+	public boolean foundIn(StringCursorPrimitive text) {
+		if (matchesEverything) return true;
+		int state = 0;
+		for (int index = 0; index < text.length(); index++) {
+			state = transitions[state * charClassCount + charClassOf(text.charAt(index))];
+			if (found[state]) return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,184 @@
+package dakara.eclipse.plugin.stringscore;
+
+import java.util.stream.IntStream;
+
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import it.unimi.dsi.fastutil.ints.IntHeapPriorityQueue;
+
+/*
+ * An order of positions which is only sorted as far as it has been read.  The table shows a page of rows at a time,
+ * so most of a large result is never looked at and never needs to be in order.
+ *
+ * Reading past the sorted part selects the next positions in order with a bounded heap per chunk, merges the
+ * chunks and sorts only what was selected.  The sorted part grows by doubling, so reading the whole order
+ * costs about the same as a full sort.
+ *
+ * Positions are ordered by rank, highest first, then by an int tie break key.  They are first put in buckets
+ * of equal rank with a counting sort.  Ranks are small integers, so this is one pass.  Only the buckets which
+ * are read are sorted, by their tie break keys.
+ *
+ * The order is the same as a stable sort of the positions.
+ */
+public class PartialRankOrder {
+	private static final int FIRST_PAGE = 256;
+	private static final int CHUNK_SIZE = 4096;
+	// larger rank ranges are compared instead of counted
+	private static final int MAX_RANK_BUCKETS = 4096;
+	private final int size;
+	// [0, sortedCount) is in order, the rest is only in order of bucket
+	private final int[] order;
+	// end of each bucket in order.  Buckets only hold positions of the same rank
+	private final int[] bucketEnds;
+	private final IntComparator positionComparator;
+	private volatile int sortedCount = 0;
+
+	/*
+	 * ranks and tieBreakKeys are by position, tie break keys smallest first
+	 */
+	public PartialRankOrder(int[] ranks, int[] tieBreakKeys) {
+		this.size = ranks.length;
+		// ties are broken by position to keep the order of a stable sort
+		this.positionComparator = (first, second) -> {
+			int compare = Integer.compare(tieBreakKeys[first], tieBreakKeys[second]);
+			return compare != 0 ? compare : Integer.compare(first, second);
+		};
+
+		final int minRank = IntStream.of(ranks).min().orElse(0);
+		final int maxRank = IntStream.of(ranks).max().orElse(0);
+		if ((long)maxRank - minRank < MAX_RANK_BUCKETS) {
+			this.order = new int[size];
+			this.bucketEnds = bucketByRank(ranks, minRank, maxRank);
+		} else {
+			// too wide to count, fall back to comparing the ranks
+			this.order = IntStream.range(0, size).toArray();
+			this.bucketEnds = new int[] {size};
+			WorkPool.RANKING.sort(order, 0, size, (first, second) -> ranks[first] != ranks[second] ? Integer.compare(ranks[second], ranks[first]) : positionComparator.compare(first, second));
+			this.sortedCount = size;
+		}
+	}
+
+	private PartialRankOrder(int[] sortedOrder) {
+		this.size = sortedOrder.length;
+		this.order = sortedOrder;
+		this.bucketEnds = new int[] {size};
+		this.positionComparator = Integer::compare;
+		this.sortedCount = size;
+	}
+
+	/*
+	 * Positions which are already in order
+	 */
+	public static PartialRankOrder sorted(int[] sortedOrder) {
+		return new PartialRankOrder(sortedOrder);
+	}
+
+	/*
+	 * Counting sort of the positions by descending rank.  Positions stay in order within a bucket.
+	 */
+	private int[] bucketByRank(int[] ranks, int minRank, int maxRank) {
+		final int[] bucketStarts = new int[maxRank - minRank + 2];
+		for (int rank : ranks) {
+			bucketStarts[maxRank - rank + 1]++;
+		}
+		int nonEmptyBuckets = 0;
+		for (int bucket = 1; bucket < bucketStarts.length; bucket++) {
+			if (bucketStarts[bucket] > 0) nonEmptyBuckets++;
+			bucketStarts[bucket] += bucketStarts[bucket - 1];
+		}
+
+		final int[] bucketEnds = new int[nonEmptyBuckets];
+		int bucketEndIndex = 0;
+		for (int bucket = 1; bucket < bucketStarts.length; bucket++) {
+			if (bucketStarts[bucket] > bucketStarts[bucket - 1]) bucketEnds[bucketEndIndex++] = bucketStarts[bucket];
+		}
+
+		for (int position = 0; position < ranks.length; position++) {
+			order[bucketStarts[maxRank - ranks[position]]++] = position;
+		}
+		return bucketEnds;
+	}
+
+	public int positionAt(int index) {
+		if (index >= sortedCount) sortUpTo(index + 1);
+		return order[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private synchronized void sortUpTo(int count) {
+		if (count <= sortedCount) return;
+		if (count > size) throw new IndexOutOfBoundsException("Index: " + (count - 1) + ", Size: " + size);
+
+		int bucket = 0;
+		while (sortedCount < count) {
+			while (bucketEnds[bucket] <= sortedCount) bucket++;
+			final int bucketStart = bucket == 0 ? 0 : bucketEnds[bucket - 1];
+			final int bucketEnd = bucketEnds[bucket];
+			final int targetCount = Math.min(bucketEnd, Math.max(count, sortedCount + Math.max(FIRST_PAGE, sortedCount - bucketStart)));
+
+			if (targetCount == bucketEnd) {
+				WorkPool.RANKING.sort(order, sortedCount, bucketEnd, positionComparator);
+			} else {
+				selectNext(bucketEnd, targetCount - sortedCount);
+			}
+			sortedCount = targetCount;
+		}
+	}
+
+	/*
+	 * Move the next selectCount positions of the bucket in order to the end of the sorted part
+	 */
+	private void selectNext(final int bucketEnd, final int selectCount) {
+		final int unsortedStart = sortedCount;
+		final int chunks = (bucketEnd - unsortedStart + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		final int[] selected = WorkPool.RANKING.call(IntStream.range(0, chunks), bucketEnd - unsortedStart, stream -> stream.
+				mapToObj(chunk -> smallestOfChunk(unsortedStart + chunk * CHUNK_SIZE, Math.min(bucketEnd, unsortedStart + (chunk + 1) * CHUNK_SIZE), selectCount)).
+				reduce(new int[0], (first, second) -> mergeSmallest(first, second, selectCount)));
+
+		// the selected positions are the smallest of the unsorted part, so anything which compares after the last one was not selected
+		final int lastSelected = selected[selected.length - 1];
+		int remaining = unsortedStart + selected.length;
+		final int[] notSelected = new int[bucketEnd - remaining];
+		int notSelectedCount = 0;
+		for (int index = unsortedStart; index < bucketEnd; index++) {
+			if (positionComparator.compare(order[index], lastSelected) > 0) notSelected[notSelectedCount++] = order[index];
+		}
+		System.arraycopy(selected, 0, order, unsortedStart, selected.length);
+		System.arraycopy(notSelected, 0, order, remaining, notSelectedCount);
+	}
+
+	/*
+	 * The smallest count positions of the chunk, in order.  A max heap holds the smallest seen so far.
+	 */
+	private int[] smallestOfChunk(int start, int end, int count) {
+		final IntHeapPriorityQueue largestFirst = new IntHeapPriorityQueue(Math.min(count, end - start) + 1, (first, second) -> positionComparator.compare(second, first));
+		for (int index = start; index < end; index++) {
+			final int position = order[index];
+			if (largestFirst.size() < count) {
+				largestFirst.enqueue(position);
+			} else if (positionComparator.compare(position, largestFirst.firstInt()) < 0) {
+				largestFirst.dequeueInt();
+				largestFirst.enqueue(position);
+			}
+		}
+		final int[] smallest = new int[largestFirst.size()];
+		for (int index = smallest.length - 1; index >= 0; index--) {
+			smallest[index] = largestFirst.dequeueInt();
+		}
+		return smallest;
+	}
+
+	private int[] mergeSmallest(int[] first, int[] second, int count) {
+		final int[] merged = new int[Math.min(count, first.length + second.length)];
+		int firstIndex = 0, secondIndex = 0;
+		for (int index = 0; index < merged.length; index++) {
+			if (secondIndex == second.length || (firstIndex < first.length && positionComparator.compare(first[firstIndex], second[secondIndex]) < 0))
+				merged[index] = first[firstIndex++];
+			else
+				merged[index] = second[secondIndex++];
+		}
+		return merged;
+	}
+}
@@ -1,13 +1,16 @@
 package dakara.eclipse.plugin.stringscore;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.Supplier;
 
 import dakara.eclipse.plugin.stringscore.StringScore.Score;
 
 public final class RankedItem<T> {
+	private static final Score[] NO_SCORES = new Score[0];
 	public final T dataItem;
-	private Map<String, Score> scores = new HashMap<>();
+	// by field ordinal, in the order the fields were added to the ranking
+	private Score[] scores = NO_SCORES;
+	// scores which are worked out when first read, see setLazyScores
+	private Supplier<Score[]> scoresResolver = null;
 	private boolean scorePerColumn = false;
 	public int order = 0;
 	private int totalScoreValue = 0;
@@ -23,11 +26,28 @@ public final class RankedItem<T> {
 	public T getDataItem() {
 		return dataItem;
 	}
-	public void addScore(Score score, String fieldId) {
-		scores.put(fieldId, score);
+	public void setScores(Score[] scores) {
+		this.scores = scores;
+		scoresResolver = null;
+		scoreComputed = false;
+		totalScoreValue = 0;
 	}
-	public Score getColumnScore(String fieldId) {
-		return scores.get(fieldId);
+	/*
+	 * The total score is known from ranking, the field scores with their matched chars are only needed
+	 * when the item is displayed
+	 */
+	public void setLazyScores(int totalScore, Supplier<Score[]> scoresResolver) {
+		this.scoresResolver = scoresResolver;
+		totalScoreValue = totalScore;
+		scoreComputed = true;
+	}
+	public Score getColumnScore(int fieldOrdinal) {
+		if (scoresResolver != null) {
+			scores = scoresResolver.get();
+			scoresResolver = null;
+		}
+		if (fieldOrdinal < 0 || fieldOrdinal >= scores.length) return null;
+		return scores[fieldOrdinal];
 	}
 	
 	public void setScoreModeByColumn(boolean scorePerColumn) {
@@ -36,13 +56,16 @@ public final class RankedItem<T> {
 	
 	public int totalScore() {
 		// This method becomes very hot when sorting large lists
-		// profiling reveals getting values() of the hashmap is expensive
 		if (scoreComputed) return totalScoreValue;
 		scoreComputed = true;
 		
 		if (scorePerColumn) {
-			for (Score score : scores.values()) {
-				if (score.rank == 0) return 0;
+			for (Score score : scores) {
+				if (score.rank == 0) {
+					// any column without a match removes the item.  Don't leave the partial sum cached
+					totalScoreValue = 0;
+					return 0;
+				}
 				if (score.rank < 0) continue;
 				totalScoreValue += score.rank;
 			}
@@ -51,10 +74,7 @@ public final class RankedItem<T> {
 		}
 
 		// Each score has the same rank when not scoring per column.  It the the score of the entire row.
-		for (Score score : scores.values()) {
-			totalScoreValue = score.rank;
-			break;
-		}
+		if (scores.length > 0) totalScoreValue = scores[0].rank;
 		return totalScoreValue;
 	}
 	
@@ -69,11 +89,4 @@ public final class RankedItem<T> {
 	public int hashCode() {
 		return dataItem.hashCode();
 	}
-	
-	public static final class RankedItemFactory<T> {
-		private static int order = 0;
-		public RankedItem<T> make(T dataItem) {
-			return new RankedItem<T>(dataItem, order++);
-		}
-	}
 }
\ No newline at end of file
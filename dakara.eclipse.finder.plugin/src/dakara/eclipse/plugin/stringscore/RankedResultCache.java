@@ -0,0 +1,47 @@
+package dakara.eclipse.plugin.stringscore;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/*
+ * Least recently used results of previous filters.  Bounded by the number of results and
+ * by their total size, so a few filters matching most of a large list can't hold on to too much memory.
+ */
+public class RankedResultCache<V> {
+	private final int maxEntries;
+	private final int maxTotalSize;
+	private final ToIntFunction<V> sizeOf;
+	private final LinkedHashMap<String, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private int totalSize = 0;
+
+	public RankedResultCache(int maxEntries, int maxTotalSize, ToIntFunction<V> sizeOf) {
+		this.maxEntries = maxEntries;
+		this.maxTotalSize = maxTotalSize;
+		this.sizeOf = sizeOf;
+	}
+
+	public synchronized V get(String key) {
+		return entries.get(key);
+	}
+
+	public synchronized void put(String key, V value) {
+		final int size = sizeOf.applyAsInt(value);
+		if (size > maxTotalSize) return;  // would evict everything else
+		V previous = entries.put(key, value);
+		if (previous != null) totalSize -= sizeOf.applyAsInt(previous);
+		totalSize += size;
+
+		Iterator<Map.Entry<String, V>> eldest = entries.entrySet().iterator();
+		while (entries.size() > maxEntries || totalSize > maxTotalSize) {
+			totalSize -= sizeOf.applyAsInt(eldest.next().getValue());
+			eldest.remove();
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		totalSize = 0;
+	}
+}
@@ -0,0 +1,77 @@
+package dakara.eclipse.plugin.stringscore;
+
+import java.util.AbstractList;
+import java.util.function.IntFunction;
+
+import dakara.eclipse.plugin.stringscore.StringScore.Score;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+/*
+ * Result of a ranking held as arrays by match position, instead of a ranked item per match.  A row's ranked item
+ * is only made when the row is read, which for a large result is the page or so the table shows.
+ *
+ * Rows are in rank order, see PartialRankOrder.  Reading rows by index with rank(int) and itemIndex(int)
+ * doesn't make ranked items at all.
+ *
+ * Ranking only keeps the rank of each match.  The field scores, with the matched chars to highlight, are worked
+ * out again for the rows which are displayed and kept for the life of the result.
+ */
+public class RankedResultSet<T> extends AbstractList<RankedItem<T>> {
+	private static final Score[] NO_SCORES = new Score[0];
+	private final IntFunction<T> items;
+	// by match position
+	private final int[] itemIndexes;
+	private final int[] ranks;
+	// field scores of an item index, null when nothing was scored
+	private final IntFunction<Score[]> itemScores;
+	// by match position, only for rows which were displayed
+	private final Int2ObjectOpenHashMap<Score[]> scoresByPosition = new Int2ObjectOpenHashMap<>();
+	private final boolean scoreModeByColumn;
+	private final PartialRankOrder order;
+
+	/*
+	 * itemScores may be null when nothing was scored, such as for an empty filter
+	 */
+	public RankedResultSet(IntFunction<T> items, int[] itemIndexes, int[] ranks, IntFunction<Score[]> itemScores, boolean scoreModeByColumn, PartialRankOrder order) {
+		this.items = items;
+		this.itemIndexes = itemIndexes;
+		this.ranks = ranks;
+		this.itemScores = itemScores;
+		this.scoreModeByColumn = scoreModeByColumn;
+		this.order = order;
+	}
+
+	@Override
+	public RankedItem<T> get(int index) {
+		final int position = order.positionAt(index);
+		final RankedItem<T> rankedItem = new RankedItem<>(items.apply(itemIndexes[position]), itemIndexes[position]);
+		rankedItem.setScoreModeByColumn(scoreModeByColumn);
+		if (itemScores == null) rankedItem.setScores(NO_SCORES);
+		else rankedItem.setLazyScores(ranks[position], () -> scoresAt(position));
+		return rankedItem;
+	}
+
+	private Score[] scoresAt(int position) {
+		synchronized (scoresByPosition) {
+			Score[] scores = scoresByPosition.get(position);
+			if (scores == null) {
+				scores = itemScores.apply(itemIndexes[position]);
+				scoresByPosition.put(position, scores);
+			}
+			return scores;
+		}
+	}
+
+	public int itemIndex(int index) {
+		return itemIndexes[order.positionAt(index)];
+	}
+
+	public int rank(int index) {
+		return ranks[order.positionAt(index)];
+	}
+
+	@Override
+	public int size() {
+		return order.size();
+	}
+}
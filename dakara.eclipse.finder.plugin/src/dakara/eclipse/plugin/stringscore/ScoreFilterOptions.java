@@ -8,11 +8,16 @@ public class ScoreFilterOptions {
 	public static final ScoreFilterOptions EMPTY = new ScoreFilterOptions("");
 	public String rawInputText;
 	public StringCursorPrimitive filterTextCursorPrimitive;
+	// filter text split on spaces.  Computed once here rather than for every item scored
+	public String[] words = new String[] {""};
+	public StringCursorPrimitive[] wordPrimitives = new StringCursorPrimitive[] {StringCursorPrimitive.EMPTY};
 	public boolean scoreAsAcronym = false;
 	public boolean scoreAsLiteral = false;
 	public boolean inverseMatch = false;
 	@SuppressWarnings("unchecked")
 	public List<String> inverseFilters = Collections.EMPTY_LIST;
+	// all inverse filters in one automaton, so an item is searched once for any of them
+	public MultiPatternMatcher inverseFilterMatcher = null;
 	public ScoreFilterOptions(String rawInputText) {
 		parseInput(rawInputText);
 	}
@@ -39,6 +44,58 @@ public class ScoreFilterOptions {
 		}
 		
 	    filterTextCursorPrimitive  = new StringCursorPrimitive(trimmedInput);
+	    words = filterTextCursorPrimitive.asString().split(" ");
+	    wordPrimitives = new StringCursorPrimitive[words.length];
+	    for (int index = 0; index < words.length; index++) {
+	    	wordPrimitives[index] = new StringCursorPrimitive(words[index]);
+	    	// cached on the primitive.  Done here so the scoring threads only ever read it
+	    	wordPrimitives[index].asString();
+	    }
+	    if (inverseMatch) inverseFilterMatcher = new MultiPatternMatcher(inverseFilters);
+	}
+	
+	/*
+	 * Does every target matching these options also match the previous options.  When true, only the
+	 * previous matches need to be scored again.  false when it can not be proven, not only when it does not hold.
+	 *
+	 * The default filter of a single word is not monotone.  Adding chars can turn a weak match, which was discarded,
+	 * into a non contiguous match.  It can only be refined into a contiguous filter.
+	 */
+	public boolean refines(ScoreFilterOptions previous) {
+		if (inverseMatch != previous.inverseMatch || !inverseFilters.equals(previous.inverseFilters)) return false;
+		final String text = filterTextCursorPrimitive.asString();
+		final String previousText = previous.filterTextCursorPrimitive.asString();
+		// previous only had negative filters, which have not changed
+		if (previousText.length() == 0) return previous.inverseMatch;
+		if (text.equals(previousText) && scoreAsAcronym == previous.scoreAsAcronym && scoreAsLiteral == previous.scoreAsLiteral) return true;
+		
+		// acronym matching is greedy, so the previous chars are matched at the same positions
+		if (previous.scoreAsAcronym) return scoreAsAcronym && text.startsWith(previousText);
+		if (scoreAsAcronym) return false;
+		
+		if (!previous.scoreAsLiteral && previous.words.length > 1) {
+			// all but the last word match the same as before.  The last word may only have been extended
+			if (scoreAsLiteral || words.length < previous.words.length) return false;
+			final int lastWord = previous.words.length - 1;
+			for (int index = 0; index < lastWord; index++) {
+				if (!words[index].equals(previous.words[index])) return false;
+			}
+			return extendsContiguousMatch(words[lastWord], previous.words[lastWord]);
+		}
+		
+		// previous was literal or a single word.  Both match wherever the previous text is found as is.
+		if (scoreAsLiteral) return extendsContiguousMatch(text, previousText);
+		if (words.length > 1) return extendsContiguousMatch(words[0], previousText);
+		return false;
+	}
+	
+	/*
+	 * Wherever the longer text is found with a rank, the previous text is found too.  The contiguous ranking
+	 * always ranks matches of 3 or more chars, shorter ones may have been discarded.
+	 */
+	private static boolean extendsContiguousMatch(String text, String previousText) {
+		if (text.equals(previousText)) return true;
+		return previousText.length() > 2 && text.startsWith(previousText);
 	}
 	
 	private String parseInverseFilters(String input) {
@@ -0,0 +1,310 @@
+package dakara.eclipse.plugin.stringscore;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/*
+ * Items and their searchable fields analyzed once, when the item list is loaded.
+ * Building a StringCursorPrimitive lowercases and classifies every char, so doing it
+ * per keystroke for every item and column was most of the cost of a query.
+ *
+ * All field text is packed into one text array and one properties array, addressed by an
+ * offset table ordered by item then field.  This keeps a large list down to a handful of
+ * objects and lets a scan over the items walk memory in order.
+ *
+ * Each field is dictionary encoded.  Fields such as the project or the file name of a resource have few distinct values
+ * compared to the items, so only the distinct values are analyzed and packed, and each item holds a value id per field.
+ * Value ids are numbered field by field, so an id also identifies the field.
+ *
+ * The text of all fields of an item joined with spaces, as scored when not filtering by column, is analyzed and
+ * packed the same way, one row per item, with the index of each column break.
+ */
+public class SearchCorpus<T> {
+	public static final int NO_VALUE = -1;
+	public final List<T> items;
+	private final int itemCount;
+	private final int fieldCount;
+	private final char[] text;
+	private final byte[] properties;
+	// value id of each field, ordered by item then field.  NO_VALUE for fields with null or empty text,
+	// so they can be scored as not found
+	private final int[] fieldValues;
+	private final int valueCount;
+	// start of each value in the arrays.  The extra last entry is the end of the last value
+	private final int[] offsets;
+	// chars present in each value, see StringCursorPrimitive.charMaskOf
+	private final long[] charMasks;
+	// chars present in any field of each item.  An item with a missing field claims all chars
+	private final long[] itemCharMasks;
+	// joined text of all fields by item
+	private final char[] rowText;
+	private final byte[] rowProperties;
+	private final int[] rowOffsets;
+	private final long[] rowCharMasks;
+	// items whose joined text was empty, as opposed to only white space which is an empty row
+	private final BitSet nullRows;
+	// index of the last char of each column in the joined text, including the space after it.  Ordered by item then field
+	private final int[] columnBreaks;
+	private TrigramIndex trigramIndex = null;
+	// item indexes in order of their sort field, and the position of each item in that order.
+	// Items with the same sort field text have the same ordinal.
+	private final int[] sortedItems;
+	private final int[] sortOrdinals;
+
+	public SearchCorpus(List<T> items, List<FieldResolver<T>> fields, Function<T, String> sortFieldResolver) {
+		this.items = items;
+		this.itemCount = items.size();
+		this.fieldCount = fields.size();
+		this.fieldValues = new int[itemCount * fieldCount];
+		this.itemCharMasks = new long[itemCount];
+
+		final String[] fieldText = new String[itemCount * fieldCount];
+		WorkPool.INDEXING.run(IntStream.range(0, itemCount), itemCount, stream -> stream.forEach(itemIndex -> resolveItem(itemIndex, fields, fieldText)));
+		final String[] values = encodeValues(fieldText);
+		this.valueCount = values.length;
+		this.charMasks = new long[valueCount];
+		this.offsets = new int[valueCount + 1];
+
+		final StringCursorPrimitive[] analyzed = new StringCursorPrimitive[valueCount];
+		WorkPool.INDEXING.run(IntStream.range(0, valueCount), valueCount, stream -> stream.forEach(valueId -> {
+			analyzed[valueId] = StringCursorPrimitive.makeTargetPrimitive(values[valueId]);
+			charMasks[valueId] = analyzed[valueId].charMask();
+		}));
+
+		int totalLength = 0;
+		for (int valueId = 0; valueId < valueCount; valueId++) {
+			offsets[valueId] = totalLength;
+			totalLength += analyzed[valueId].length();
+		}
+		offsets[valueCount] = totalLength;
+
+		text = new char[totalLength];
+		properties = new byte[totalLength];
+		WorkPool.INDEXING.run(IntStream.range(0, valueCount), valueCount, stream -> stream.forEach(valueId -> pack(analyzed[valueId], offsets[valueId])));
+		WorkPool.INDEXING.run(IntStream.range(0, itemCount), itemCount, stream -> stream.forEach(this::maskItem));
+		
+		this.columnBreaks = new int[itemCount * fieldCount];
+		this.rowCharMasks = new long[itemCount];
+		this.rowOffsets = new int[itemCount + 1];
+		this.nullRows = new BitSet(itemCount);
+		final String[] rows = new String[itemCount];
+		WorkPool.INDEXING.run(IntStream.range(0, itemCount), itemCount, stream -> stream.forEach(itemIndex -> rows[itemIndex] = joinRow(itemIndex, fieldText)));
+		int totalRowLength = 0;
+		for (int itemIndex = 0; itemIndex < itemCount; itemIndex++) {
+			rowOffsets[itemIndex] = totalRowLength;
+			if (rows[itemIndex] != null) totalRowLength += rows[itemIndex].length();
+			else nullRows.set(itemIndex);
+		}
+		rowOffsets[itemCount] = totalRowLength;
+		rowText = new char[totalRowLength];
+		rowProperties = new byte[totalRowLength];
+		WorkPool.INDEXING.run(IntStream.range(0, itemCount), itemCount, stream -> stream.forEach(itemIndex -> packRow(itemIndex, rows[itemIndex])));
+		
+		sortOrdinals = new int[itemCount];
+		final String[] sortText = new String[itemCount];
+		sortedItems = sortedItems(items, sortFieldResolver, sortText, WorkPool.INDEXING);
+		numberSortOrder(sortText);
+	}
+	
+	/*
+	 * Item indexes in sort field order, ties keep list order the same as a stable sort.  The sort text of each item is filled in.
+	 */
+	static <T> int[] sortedItems(List<T> items, Function<T, String> sortFieldResolver, String[] sortText, WorkPool workPool) {
+		final int itemCount = items.size();
+		final int[] sortedItems = IntStream.range(0, itemCount).toArray();
+		workPool.run(IntStream.range(0, itemCount), itemCount, stream -> stream.forEach(itemIndex -> sortText[itemIndex] = sortFieldResolver.apply(items.get(itemIndex))));
+		workPool.sort(sortedItems, 0, itemCount, (first, second) -> {
+			int compare = sortText[first].compareTo(sortText[second]);
+			return compare != 0 ? compare : Integer.compare(first, second);
+		});
+		return sortedItems;
+	}
+	
+	/*
+	 * Sorting once here lets the ranking compare ordinals instead of resolving and comparing the sort text of each item
+	 */
+	private void numberSortOrder(String[] sortText) {
+		for (int index = 0; index < itemCount; index++) {
+			final int itemIndex = sortedItems[index];
+			final boolean sameAsPrevious = index > 0 && sortText[itemIndex].equals(sortText[sortedItems[index - 1]]);
+			sortOrdinals[itemIndex] = sameAsPrevious ? sortOrdinals[sortedItems[index - 1]] : index;
+		}
+	}
+
+	private void resolveItem(int itemIndex, List<FieldResolver<T>> fields, String[] fieldText) {
+		final T item = items.get(itemIndex);
+		for (int fieldIndex = 0; fieldIndex < fieldCount; fieldIndex++) {
+			fieldText[itemIndex * fieldCount + fieldIndex] = fields.get(fieldIndex).fieldResolver.apply(item);
+		}
+	}
+
+	/*
+	 * Numbers the distinct text of each field and fills in the value id of every field.  Returns the text of each value id.
+	 */
+	private String[] encodeValues(String[] fieldText) {
+		final String[] values = new String[fieldText.length];
+		int nextValueId = 0;
+		for (int fieldIndex = 0; fieldIndex < fieldCount; fieldIndex++) {
+			// a dictionary per field, the same text in another field is another value
+			final Object2IntOpenHashMap<String> valueIds = new Object2IntOpenHashMap<>();
+			valueIds.defaultReturnValue(NO_VALUE);
+			for (int fieldOrdinal = fieldIndex; fieldOrdinal < fieldText.length; fieldOrdinal += fieldCount) {
+				final String text = fieldText[fieldOrdinal];
+				if (text == null || text.length() == 0) {
+					fieldValues[fieldOrdinal] = NO_VALUE;
+					continue;
+				}
+				int valueId = valueIds.getInt(text);
+				if (valueId == NO_VALUE) {
+					valueId = nextValueId++;
+					valueIds.put(text, valueId);
+					values[valueId] = text;
+				}
+				fieldValues[fieldOrdinal] = valueId;
+			}
+		}
+		return Arrays.copyOf(values, nextValueId);
+	}
+
+	private void maskItem(int itemIndex) {
+		long itemCharMask = 0L;
+		for (int fieldOrdinal = itemIndex * fieldCount; fieldOrdinal < (itemIndex + 1) * fieldCount; fieldOrdinal++) {
+			itemCharMask |= fieldValues[fieldOrdinal] == NO_VALUE ? StringCursorPrimitive.ALL_CHARS : charMasks[fieldValues[fieldOrdinal]];
+		}
+		itemCharMasks[itemIndex] = itemCharMask;
+	}
+
+	/*
+	 * Concatenate all columns together with space separators and note the index where each column ends.
+	 * A missing field adds no text, its column ends where the previous one did.  Trimmed the same as
+	 * StringCursorPrimitive.makeTargetPrimitive, null when there is no text at all.
+	 */
+	private String joinRow(int itemIndex, String[] fieldText) {
+		final StringBuilder allColumnText = new StringBuilder();
+		for (int fieldIndex = 0; fieldIndex < fieldCount; fieldIndex++) {
+			final String text = fieldText[itemIndex * fieldCount + fieldIndex];
+			if (text != null && text.length() > 0) {
+				allColumnText.append(text);
+				if (fieldIndex < fieldCount - 1) allColumnText.append(" ");
+			}
+			columnBreaks[itemIndex * fieldCount + fieldIndex] = allColumnText.length() - 1;
+		}
+		if (allColumnText.length() == 0) return null;
+		return allColumnText.toString().trim();
+	}
+
+	// analyzed straight into the packed arrays, the row is not copied again
+	private void packRow(int itemIndex, String row) {
+		if (row == null) return;
+		rowCharMasks[itemIndex] = StringCursorPrimitive.analyzeInto(row, rowText, rowProperties, rowOffsets[itemIndex]);
+	}
+
+	private void pack(StringCursorPrimitive primitive, int offset) {
+		System.arraycopy(primitive.text, primitive.start, text, offset, primitive.length());
+		System.arraycopy(primitive.properties, primitive.start, properties, offset, primitive.length());
+	}
+
+	public boolean isCorpusOf(List<T> items) {
+		return this.items == items && itemCount == items.size();
+	}
+
+	/*
+	 * A view onto the shared arrays.  null when the field had no text.
+	 */
+	public StringCursorPrimitive fieldPrimitive(int itemIndex, int fieldIndex) {
+		final int valueId = fieldValue(itemIndex, fieldIndex);
+		return valueId == NO_VALUE ? null : valuePrimitive(valueId);
+	}
+	
+	/*
+	 * Value id of the field, or NO_VALUE when the field had no text
+	 */
+	public int fieldValue(int itemIndex, int fieldIndex) {
+		return fieldValues[itemIndex * fieldCount + fieldIndex];
+	}
+	
+	public StringCursorPrimitive valuePrimitive(int valueId) {
+		final StringCursorPrimitive primitive = new StringCursorPrimitive(text, properties, offsets[valueId], offsets[valueId + 1] - offsets[valueId]);
+		primitive.charMask = charMasks[valueId];
+		return primitive;
+	}
+	
+	/*
+	 * Joined text of all fields of the item, as a view onto the shared arrays.  null when the joined text was empty,
+	 * same as makeTargetPrimitive.  Text of only white space is an empty primitive.
+	 */
+	public StringCursorPrimitive rowPrimitive(int itemIndex) {
+		if (nullRows.get(itemIndex)) return null;
+		final StringCursorPrimitive primitive = new StringCursorPrimitive(rowText, rowProperties, rowOffsets[itemIndex], rowOffsets[itemIndex + 1] - rowOffsets[itemIndex]);
+		primitive.charMask = rowCharMasks[itemIndex];
+		return primitive;
+	}
+	
+	/*
+	 * Index of the last char of the column in the joined text of the item
+	 */
+	public int columnBreak(int itemIndex, int fieldIndex) {
+		return columnBreaks[itemIndex * fieldCount + fieldIndex];
+	}
+	
+	/*
+	 * Distinct field values of all fields
+	 */
+	public int valueCount() {
+		return valueCount;
+	}
+	
+	public boolean itemContainsAllCharsOf(int itemIndex, long charMask) {
+		return (itemCharMasks[itemIndex] & charMask) == charMask;
+	}
+
+	/*
+	 * Built on first use, only lists which opt in pay for the index
+	 */
+	public synchronized TrigramIndex trigramIndex() {
+		if (trigramIndex == null) trigramIndex = new TrigramIndex(this);
+		return trigramIndex;
+	}
+	
+	public int[] sortOrdinals(int[] itemIndexes) {
+		final int[] ordinals = new int[itemIndexes.length];
+		for (int index = 0; index < itemIndexes.length; index++) {
+			ordinals[index] = sortOrdinals[itemIndexes[index]];
+		}
+		return ordinals;
+	}
+	
+	/*
+	 * Item indexes in sort field order.  Shared, not to be modified
+	 */
+	public int[] sortedItems() {
+		return sortedItems;
+	}
+	
+	public T item(int itemIndex) {
+		return items.get(itemIndex);
+	}
+
+	public int size() {
+		return itemCount;
+	}
+	
+	public int fieldCount() {
+		return fieldCount;
+	}
+	
+	/*
+	 * Bytes of the arrays the corpus is packed into, not counting the items or the trigram index.
+	 * Kept for the footprint test.
+	 */
+	long footprintBytes() {
+		return text.length * 2L + properties.length + rowText.length * 2L + rowProperties.length +
+				(fieldValues.length + offsets.length + rowOffsets.length + columnBreaks.length + sortedItems.length + sortOrdinals.length) * 4L +
+				(charMasks.length + itemCharMasks.length + rowCharMasks.length) * 8L + nullRows.size() / 8;
+	}
+}
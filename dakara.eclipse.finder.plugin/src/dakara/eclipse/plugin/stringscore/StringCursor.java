@@ -26,6 +26,18 @@ public class StringCursor {
 		this.text = primitive;
 	}
 	
+	/*
+	 * Reuse this cursor for another text.  Markers are cleared, so take a copy of markers()
+	 * before resetting if they are still needed.
+	 */
+	public StringCursor reset(StringCursorPrimitive primitive) {
+		this.text = primitive;
+		indexOfCursor = 0;
+		currentMarker = 0;
+		markers.clear();
+		return this;
+	}
+	
 	public StringCursor setMarkers(List<Integer> markers) {
 		this.markers = new IntArrayList(markers);
 		return this;
@@ -173,7 +185,7 @@ public class StringCursor {
 		int indexOfCursor = startIndex + 1;
 		int count = 0;
 		while(indexOfCursor < endIndex) {
-			if ((text.properties[indexOfCursor] & (text.F_WORD_PARTIAL_START | text.F_WORDSTART)) != 0) {
+			if ((text.propertiesAt(indexOfCursor) & (StringCursorPrimitive.F_WORD_PARTIAL_START | StringCursorPrimitive.F_WORDSTART)) != 0) {
 				count++;
 			} 
 			indexOfCursor++;
@@ -185,7 +197,7 @@ public class StringCursor {
 		int indexOfCursor = startIndex + 1;
 		int count = 0;
 		while(indexOfCursor < endIndex) {
-			if ((text.properties[indexOfCursor] & (text.F_WORDSTART)) != 0) {
+			if ((text.propertiesAt(indexOfCursor) & (StringCursorPrimitive.F_WORDSTART)) != 0) {
 				count++;
 			} 
 			indexOfCursor++;
@@ -229,6 +241,18 @@ public class StringCursor {
 		return text.substring(indexStart, indexEnd + 1);
 	}
 	
+	/*
+	 * Same as partialWordAtCursor().equals(match) without creating the string
+	 */
+	public boolean partialWordAtCursorEquals(String match) {
+		if (cursorPositionTerminal()) return match.length() == 0;
+		int currentIndex = indexOfCursor;
+		int indexStart = moveCursorPreviousPartialWordStart().indexOfCursor();
+		int indexEnd   = moveCursorForwardPartialWordEnd().indexOfCursor();
+		indexOfCursor = currentIndex;
+		return text.regionEquals(indexStart, indexEnd + 1, match);
+	}
+	
 	public String markersAsString() {
 		StringBuilder builder = new StringBuilder();
 		for(int index : markers) {
@@ -243,11 +267,11 @@ public class StringCursor {
 	}
 	
 	public boolean cursorAtPartialWordStart() {
-		return (text.properties[indexOfCursor] & (text.F_WORD_PARTIAL_START | text.F_WORDSTART)) != 0;
+		return (text.propertiesAt(indexOfCursor) & (StringCursorPrimitive.F_WORD_PARTIAL_START | StringCursorPrimitive.F_WORDSTART)) != 0;
 	}
 	
 	public boolean cursorAtPartialWordEnd() {
-		return (text.properties[indexOfCursor] & (text.F_WORD_PARTIAL_END | text.F_WORDEND)) != 0;
+		return (text.propertiesAt(indexOfCursor) & (StringCursorPrimitive.F_WORD_PARTIAL_END | StringCursorPrimitive.F_WORDEND)) != 0;
 	}
 	
 	public char currentChar() {
@@ -279,7 +303,7 @@ public class StringCursor {
 	
 	public StringCursor moveCursorPreviousPartialWordStart() {
 		 while(!cursorPositionTerminal()) {
-			 if ((text.properties[indexOfCursor] & (text.F_WORD_PARTIAL_START | text.F_WORDSTART)) != 0) break;
+			 if ((text.propertiesAt(indexOfCursor) & (StringCursorPrimitive.F_WORD_PARTIAL_START | StringCursorPrimitive.F_WORDSTART)) != 0) break;
 			 indexOfCursor--;
 		 }
 		 return this;
@@ -287,7 +311,7 @@ public class StringCursor {
 	
 	public StringCursor moveCursorForwardPartialWordEnd() {
 		while(!cursorPositionTerminal()) {
-			if ((text.properties[indexOfCursor] & (text.F_WORD_PARTIAL_END | text.F_WORDEND)) != 0) break;
+			if ((text.propertiesAt(indexOfCursor) & (StringCursorPrimitive.F_WORD_PARTIAL_END | StringCursorPrimitive.F_WORDEND)) != 0) break;
 			indexOfCursor++;
 		}
 		return this;
@@ -295,7 +319,7 @@ public class StringCursor {
 	
 	public StringCursor moveCursorForwardWordEnd() {
 		 while(!cursorPositionTerminal()) {
-			 if ((text.properties[indexOfCursor] & (text.F_WORDEND)) != 0) break;
+			 if ((text.propertiesAt(indexOfCursor) & (StringCursorPrimitive.F_WORDEND)) != 0) break;
 			 indexOfCursor++;
 		 }
 		 return this;
@@ -311,6 +335,16 @@ public class StringCursor {
 		 return this;
 	}
 	
+	public StringCursor moveCursorForwardIndexOf(StringCursorPrimitive match) {
+		 indexOfCursor = text.indexOf(match, 0, match.length(), indexOfCursor);
+		 return this;
+	}
+	
+	public StringCursor moveCursorForwardIndexOf(StringCursorPrimitive match, int matchStart, int matchEnd) {
+		 indexOfCursor = text.indexOf(match, matchStart, matchEnd, indexOfCursor);
+		 return this;
+	}
+	
 	public StringCursor moveCursorForwardIndexOfAlphaSequenceWrapAround(String match) {
 		if (indexOfCursor > 0) {
 			moveCursorForwardIndexOfAlphaSequence(match);
@@ -376,7 +410,7 @@ public class StringCursor {
 	
 	public StringCursor moveCursorForwardWordStart() {
 		 while(!cursorPositionTerminal()) {
-			 if ((text.properties[indexOfCursor] & text.F_WORDSTART) == text.F_WORDSTART) break;
+			 if ((text.propertiesAt(indexOfCursor) & StringCursorPrimitive.F_WORDSTART) == StringCursorPrimitive.F_WORDSTART) break;
 			 indexOfCursor++;
 		 }
 		 return this;
@@ -384,7 +418,7 @@ public class StringCursor {
 	
 	public StringCursor moveCursorPreviousWordStart() {
 		 while(!cursorPositionTerminal()) {
-			 if ((text.properties[indexOfCursor] & text.F_WORDSTART) == text.F_WORDSTART) break;
+			 if ((text.propertiesAt(indexOfCursor) & StringCursorPrimitive.F_WORDSTART) == StringCursorPrimitive.F_WORDSTART) break;
 			 indexOfCursor--;
 		 }
 		 return this;
@@ -392,7 +426,7 @@ public class StringCursor {
 	
 	public StringCursor moveCursorForwardPartialWordStart() {
 		 while(!cursorPositionTerminal()) {
-			 if ((text.properties[indexOfCursor] & (text.F_WORDSTART | text.F_WORD_PARTIAL_START)) != 0) break;
+			 if ((text.propertiesAt(indexOfCursor) & (StringCursorPrimitive.F_WORDSTART | StringCursorPrimitive.F_WORD_PARTIAL_START)) != 0) break;
 			 indexOfCursor++;
 		 }
 		 return this;
@@ -452,6 +486,15 @@ public class StringCursor {
 		return this;
 	}
 	
+	/*
+	 * Same as maskRegions, but the masked copy is written into a reusable primitive
+	 */
+	public StringCursor maskRegions(IntArrayList maskIndexes, StringCursorPrimitive maskedPrimitive) {
+		if (maskIndexes.size() == 0) return this;
+		text = maskedPrimitive.copyWithMask(text, maskIndexes);
+		return this;
+	}
+	
 	public StringCursorPrimitive getCursorPrimitive() {
 		return text;
 	}
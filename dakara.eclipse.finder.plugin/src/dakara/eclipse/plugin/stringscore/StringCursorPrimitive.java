@@ -6,33 +6,56 @@ import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 public class StringCursorPrimitive {
 	public static final StringCursorPrimitive EMPTY = new StringCursorPrimitive("");
-	int F_UPPERCASE = 0x1 ;
-	int F_WORD_PARTIAL_START 	= 0x1 << 1;
-	int F_WORD_PARTIAL_END 	 	= 0x1 << 2;
-	int F_ALPHA	   			 	= 0x1 << 3;
-	int F_DIGIT	   			 	= 0x1 << 4;
-	int F_WORDSTART 				= 0x1 << 5;
-	int F_WORDEND   				= 0x1 << 6;
+	// All flags must fit in the 7 low bits of a byte.  properties keeps one byte per char
+	static final int F_UPPERCASE = 0x1 ;
+	static final int F_WORD_PARTIAL_START 	= 0x1 << 1;
+	static final int F_WORD_PARTIAL_END 	 	= 0x1 << 2;
+	static final int F_ALPHA	   			 	= 0x1 << 3;
+	static final int F_DIGIT	   			 	= 0x1 << 4;
+	static final int F_WORDSTART 				= 0x1 << 5;
+	static final int F_WORDEND   				= 0x1 << 6;
 	
+	// Set of chars present in the text, one bit per letter and digit.  Other chars share the remaining bits.
+	// Text which was not analyzed here claims every char, so it is never rejected by the mask.
+	public static final long ALL_CHARS = -1L;
+	
+	// A primitive may be a slice of larger shared arrays.  See SearchCorpus
 	char[] text;
-	int[] properties;
+	byte[] properties;
+	int start = 0;
+	int length;
 	String textAsString = null;
+	long charMask = ALL_CHARS;
 	
 	public StringCursorPrimitive(String text) {
 		analyzeAndTransform(text);
 	}
 	public StringCursorPrimitive(StringCursorPrimitive primitive) {
-		this.text = primitive.text;
-		this.properties = primitive.properties;
+		this(primitive.text, primitive.properties, primitive.start, primitive.length);
+		this.charMask = primitive.charMask;
+	}
+	public StringCursorPrimitive(char[] text, byte[] properties) {
+		this(text, properties, 0, text.length);
 	}
-	public StringCursorPrimitive(char[] text, int[] properties) {
+	public StringCursorPrimitive(char[] text, byte[] properties, int start, int length) {
 		this.text = text;
 		this.properties = properties;
+		this.start = start;
+		this.length = length;
+	}
+	
+	/*
+	 * Targets are trimmed before analysis.  A null or empty target has nothing to match
+	 * and is returned as null so it can be scored as not found.
+	 */
+	public static StringCursorPrimitive makeTargetPrimitive(String text) {
+		if ((text == null) || (text.length() == 0)) return null;
+		return new StringCursorPrimitive(text.trim());
 	}
 	
 	public static StringCursorPrimitive makePrimitiveWithMask(StringCursorPrimitive primitive, IntArrayList masks) {
-		char[] text = Arrays.copyOf(primitive.text, primitive.text.length);
-		int[] properties = Arrays.copyOf(primitive.properties, primitive.properties.length);
+		char[] text = Arrays.copyOfRange(primitive.text, primitive.start, primitive.start + primitive.length);
+		byte[] properties = Arrays.copyOfRange(primitive.properties, primitive.start, primitive.start + primitive.length);
 		for (int mask : masks) {
 			text[mask] = ' ';
 			properties[mask] = 0;
@@ -40,8 +63,64 @@ public class StringCursorPrimitive {
 		return new StringCursorPrimitive(text, properties);
 	}	
 	
-	public char charAt(int index) {return text[index];}
-	public int length()	{return text.length;}
+	/*
+	 * Point this primitive at another region of text.  Used to reuse one view object
+	 * while scoring many slices of a corpus.
+	 */
+	public StringCursorPrimitive slice(char[] text, byte[] properties, int start, int length) {
+		this.text = text;
+		this.properties = properties;
+		this.start = start;
+		this.length = length;
+		this.textAsString = null;
+		this.charMask = ALL_CHARS;
+		return this;
+	}
+	
+	/*
+	 * Same result as makePrimitiveWithMask, but copies into this primitive's own arrays.
+	 * The arrays are only reallocated when they are too small, so a scratch primitive can be reused.
+	 */
+	public StringCursorPrimitive copyWithMask(StringCursorPrimitive primitive, IntArrayList masks) {
+		final int copyLength = primitive.length;
+		char[] text = this.text;
+		byte[] properties = this.properties;
+		if (text == null || text.length < copyLength) {
+			text = new char[copyLength];
+			properties = new byte[copyLength];
+		}
+		System.arraycopy(primitive.text, primitive.start, text, 0, copyLength);
+		System.arraycopy(primitive.properties, primitive.start, properties, 0, copyLength);
+		final int[] maskIndexes = masks.elements();
+		for (int index = 0; index < masks.size(); index++) {
+			text[maskIndexes[index]] = ' ';
+			properties[maskIndexes[index]] = 0;
+		}
+		slice(text, properties, 0, copyLength);
+		// masking only removes chars, so the original mask still covers the copy
+		charMask = primitive.charMask;
+		return this;
+	}
+	
+	public static long charMaskOf(final char lowerCaseChar) {
+		if (lowerCaseChar >= 'a' && lowerCaseChar <= 'z') return 1L << (lowerCaseChar - 'a');
+		if (lowerCaseChar >= '0' && lowerCaseChar <= '9') return 1L << (26 + lowerCaseChar - '0');
+		if (Character.isWhitespace(lowerCaseChar)) return 0L;  // never part of a match
+		return 1L << (36 + lowerCaseChar % 28);
+	}
+	
+	/*
+	 * Cheap check that every char of the other text is present in this text.  false means the
+	 * other text can not match here with any strategy.  true does not mean it matches.
+	 */
+	public boolean containsAllCharsOf(final long otherCharMask) {
+		return (charMask & otherCharMask) == otherCharMask;
+	}
+	
+	public long charMask() {return charMask;}
+	public char charAt(int index) {return text[start + index];}
+	public int propertiesAt(int index) {return properties[start + index];}
+	public int length()	{return length;}
 	
 	public int indexOf(final String string) {
 		return indexOf(string.toCharArray(), 0);
@@ -51,11 +130,11 @@ public class StringCursorPrimitive {
 	}
 	
 	public int indexOf(final char[] needle, final int startingOffset) {
-		final int max = text.length - needle.length+1;
+		final int max = length - needle.length+1;
 		for(int offsetForCompare = startingOffset; offsetForCompare < max; ++offsetForCompare) {
 			boolean found = true;
 			for(int indexToCompare = 0; indexToCompare < needle.length; ++indexToCompare) {
-				if (text[offsetForCompare+indexToCompare] != needle[indexToCompare]) {
+				if (text[start+offsetForCompare+indexToCompare] != needle[indexToCompare]) {
 					found = false;
 					break;
 				}
@@ -65,9 +144,44 @@ public class StringCursorPrimitive {
 		return -1;  
 	}  
 
+	/*
+	 * indexOf for the region [needleStart, needleEnd) of another primitive.  Avoids creating a substring to search for.
+	 */
+	public int indexOf(final StringCursorPrimitive needle, final int needleStart, final int needleEnd, final int startingOffset) {
+		final int needleLength = needleEnd - needleStart;
+		final int needleOffset = needle.start + needleStart;
+		final int max = length - needleLength+1;
+		for(int offsetForCompare = startingOffset; offsetForCompare < max; ++offsetForCompare) {
+			boolean found = true;
+			for(int indexToCompare = 0; indexToCompare < needleLength; ++indexToCompare) {
+				if (text[start+offsetForCompare+indexToCompare] != needle.text[needleOffset+indexToCompare]) {
+					found = false;
+					break;
+				}
+			}
+			if (found) return offsetForCompare;
+		}
+		return -1;
+	}
+	
+	public boolean contains(final char[] needle) {
+		return indexOf(needle, 0) != -1;
+	}
+	
+	/*
+	 * Does the text in [regionStart, regionEnd) equal the string. Out of range regions do not match.
+	 */
+	public boolean regionEquals(final int regionStart, final int regionEnd, final String other) {
+		if (regionStart < 0 || regionEnd > length || regionEnd - regionStart != other.length()) return false;
+		for (int index = 0; index < other.length(); index++) {
+			if (text[start + regionStart + index] != other.charAt(index)) return false;
+		}
+		return true;
+	}
+
 	public int indexOf(final char needle, final int startingOffset) {
-        for(int indexToCompare = 0; indexToCompare < text.length; ++indexToCompare) {
-           if (text[indexToCompare] == needle) {
+        for(int indexToCompare = 0; indexToCompare < length; ++indexToCompare) {
+           if (text[start+indexToCompare] == needle) {
                return indexToCompare;
            }
         }
@@ -76,23 +190,33 @@ public class StringCursorPrimitive {
 	
 	public String asString() {
 		if (textAsString != null) return textAsString;
-		textAsString = new String(text);
+		textAsString = new String(text, start, length);
 		return textAsString;
 	}
 	
 	public String substring(int start, int end) {
-		char[] subArray = new char[end - start];
-		System.arraycopy(text, start, subArray, 0, end-start);
-		return new String(subArray);
+		return new String(text, this.start + start, end - start);
 	}
 	
 	private void analyzeAndTransform(String inputText) {
-		char[] originalChars = inputText.toCharArray();
-		text = new char[originalChars.length];
-		properties = new int[originalChars.length];
-		int index = 0;
-		for(char originalChar : originalChars) {
+		text = new char[inputText.length()];
+		properties = new byte[inputText.length()];
+		length = inputText.length();
+		charMask = analyzeInto(inputText, text, properties, 0);
+	}
+	
+	/*
+	 * Lowercases and classifies the text into the arrays starting at the offset, which must not have been written yet.
+	 * Returns the char mask of the text.  Lets the text of many items be analyzed into shared arrays without a copy per item.
+	 */
+	static long analyzeInto(String inputText, char[] text, byte[] properties, int offset) {
+		final int length = inputText.length();
+		long charMask = 0L;
+		for (int charIndex = 0; charIndex < length; charIndex++) {
+			final char originalChar = inputText.charAt(charIndex);
+			final int index = offset + charIndex;
 			text[index] = (char)Character.toLowerCase((int)originalChar);
+			charMask |= charMaskOf(text[index]);
 			
 			final int charType = Character.getType((int)originalChar);
 			
@@ -113,20 +237,20 @@ public class StringCursorPrimitive {
 			
 			// is word start
 			if ((properties[index]     & F_ALPHA) == F_ALPHA &&  				// current char is alpha
-				(index == 0 || (properties[index - 1] & F_ALPHA) == 0)) {		// previous char is not alpha or there is no previous char
+				(charIndex == 0 || (properties[index - 1] & F_ALPHA) == 0)) {		// previous char is not alpha or there is no previous char
 				properties[index] |= F_WORDSTART;
 			}
 			
 			// is word end
-			if ((properties[index]     & F_ALPHA) == F_ALPHA && index == text.length - 1)                         // current char is alpha and is last char
+			if ((properties[index]     & F_ALPHA) == F_ALPHA && charIndex == length - 1)                         // current char is alpha and is last char
 				properties[index] |= F_WORDEND;																	
-			else if (index > 0 && (properties[index] & F_ALPHA) == 0 && (properties[index - 1] & F_ALPHA) == F_ALPHA) {		// current char is non alpha and previous is alpha
+			else if (charIndex > 0 && (properties[index] & F_ALPHA) == 0 && (properties[index - 1] & F_ALPHA) == F_ALPHA) {		// current char is non alpha and previous is alpha
 				properties[index - 1] |= F_WORDEND;
 			}
 			
 			// partial word start and end
 			// create markers for transition from lower case to upper case
-			if (index > 0 &&
+			if (charIndex > 0 &&
 					(properties[index]     & F_UPPERCASE) != 0 &&  // current char is upper case
 					(properties[index - 1] & F_UPPERCASE) == 0 &&  // previous char is lower case
 					(properties[index - 1] & F_ALPHA) != 0) {	  // previous char is alpha
@@ -136,29 +260,29 @@ public class StringCursorPrimitive {
 			// create markers for transition from upper case to lower case
 			// This is needed for when there are more multiple consecutive upper case chars
 			// For example IClientBase should make acronym ICB
-			if (index > 1 &&
+			if (charIndex > 1 &&
 					(properties[index]     & F_UPPERCASE) == 0 &&  // current char is lower case
 					(properties[index - 1] & F_UPPERCASE) != 0 &&  // previous char is upper case
 					(properties[index - 1] & F_ALPHA) != 0) {	  // previous char is alpha
 				properties[index-1] |= F_WORD_PARTIAL_START;
 				properties[index-2] |= F_WORD_PARTIAL_END;
 			}			
-			if (index > 0 &&
+			if (charIndex > 0 &&
 				(properties[index]     & F_DIGIT) != 0 &&  // current char is digit
 				(properties[index - 1] & F_DIGIT) == 0 &&  // previous char is not digit
 				(properties[index - 1] & F_ALPHA) != 0) {  // previous char is alpha
 					properties[index] |= F_WORD_PARTIAL_START;
 					properties[index-1] |= F_WORD_PARTIAL_END;
 			}
-			index++;
 		}
+		return charMask;
 	}
 	
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
 		builder.append(makeRuler(F_UPPERCASE, 'U')).append('\n');
-		builder.append(text).append('\n');
+		builder.append(text, start, length).append('\n');
 		builder.append(makeRuler(F_WORD_PARTIAL_START, 'P').append('\n'));
 		builder.append(makeRuler(F_WORD_PARTIAL_END, 'p').append('\n'));
 		builder.append(makeRuler(F_ALPHA, 'A').append('\n'));
@@ -168,10 +292,10 @@ public class StringCursorPrimitive {
 	}
 	
 	private StringBuilder makeRuler(int propertyFlag, char propertyMarkerChar) {
-		StringBuilder builder = makeFilledBuilder(text.length, ' ');
+		StringBuilder builder = makeFilledBuilder(length, ' ');
 		int index = 0;
-		while (index < text.length) {
-			if ((properties[index] & propertyFlag) == propertyFlag)
+		while (index < length) {
+			if ((propertiesAt(index) & propertyFlag) == propertyFlag)
 				builder.setCharAt(index, propertyMarkerChar);
 			index++;
 		}
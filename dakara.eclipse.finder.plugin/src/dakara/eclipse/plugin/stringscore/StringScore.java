@@ -1,11 +1,10 @@
 package dakara.eclipse.plugin.stringscore;
 
-import java.util.Comparator;
-import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 /**
  * scoring strategies:
  * - rank by distance found from beginning of string
@@ -40,6 +39,7 @@ public class StringScore {
 	private static final Score EMPTY_SCORE = new Score(0, new IntArrayList(0));
 	private static final Score NOT_FOUND_SCORE = new Score(-1, new IntArrayList(0));
 	private static final Score INVERSE_FOUND_SCORE = new Score(1, new IntArrayList(0));	
+	private static final IntArrayList NO_MATCHES = new IntArrayList(0);
 	
 	private BiFunction<String, StringCursor, Integer> contiguousSequenceRankingProvider;
 	private Function<StringCursor, Integer> acronymRankingProvider;
@@ -56,36 +56,42 @@ public class StringScore {
 	}
 	
 	public Score parseMatchAndScore(final ScoreFilterOptions filterOptions, String target) {
-		if ((target == null) || (target.length() == 0)) return NOT_FOUND_SCORE;
-		final StringCursorPrimitive targetCursorPrimitive = new StringCursorPrimitive(target.trim());
-		return parseMatchAndScore(filterOptions, targetCursorPrimitive);
+		return parseMatchAndScore(filterOptions, StringCursorPrimitive.makeTargetPrimitive(target));
 	}
 	
-	// TODO - need to accept a StringCursorPrimitive for target
+	/*
+	 * Same rank as parseMatchAndScore without the positions of the matched chars.  For ordering items, where
+	 * the positions are only needed for the few rows which get displayed.
+	 */
+	public Score parseMatchAndRank(final ScoreFilterOptions filterOptions, final StringCursorPrimitive targetCursorPrimitive) {
+		final ScoringScratch scratch = ScoringScratch.get();
+		scratch.keepMatches = false;
+		try {
+			return parseMatchAndScore(filterOptions, targetCursorPrimitive);
+		} finally {
+			scratch.keepMatches = true;
+		}
+	}
+	
+	// Prefer this version with a cached primitive for the target.
 	// the initialization costs shows up in profiling
 	public Score parseMatchAndScore(final ScoreFilterOptions filterOptions, final StringCursorPrimitive targetCursorPrimitive) {
+		if (targetCursorPrimitive == null) return NOT_FOUND_SCORE;
 		final StringCursorPrimitive match = filterOptions.filterTextCursorPrimitive;
 		
 		if (filterOptions.inverseMatch) { 
-			if (containsString(targetCursorPrimitive, filterOptions.inverseFilters)) return EMPTY_SCORE;
+			if (filterOptions.inverseFilterMatcher.foundIn(targetCursorPrimitive)) return EMPTY_SCORE;
 			else if (match.length() == 0) return INVERSE_FOUND_SCORE; // no filter supplied, only negative filter
 		}
 		if ((match.length() == 0)) return NOT_FOUND_SCORE;
+		// every strategy needs all chars of the filter to be somewhere in the target
+		if (!targetCursorPrimitive.containsAllCharsOf(match.charMask())) return EMPTY_SCORE;
 		
-		final String[] words = splitWords(match.asString());
-		
-		Score score = determineScore(filterOptions.scoreAsAcronym, filterOptions.scoreAsLiteral, match, targetCursorPrimitive, words);
+		Score score = determineScore(filterOptions.scoreAsAcronym, filterOptions.scoreAsLiteral, match, targetCursorPrimitive, filterOptions.wordPrimitives);
 		return score;
 	}
 	
-	private boolean containsString(StringCursorPrimitive target, List<String> filters) {
-		for (String filter : filters) {
-			if (target.indexOf(filter) != -1) return true;
-		}
-		return false;
-	}
-	
-	private Score determineScore(boolean scoreAsAcronym, boolean scoreAsLiteral, StringCursorPrimitive matchCursorPrimitive, StringCursorPrimitive targetCursorPrimitive, final String[] words) {
+	private Score determineScore(boolean scoreAsAcronym, boolean scoreAsLiteral, StringCursorPrimitive matchCursorPrimitive, StringCursorPrimitive targetCursorPrimitive, final StringCursorPrimitive[] words) {
 		Score score;
 		if (scoreAsAcronym) {
 			// If there is a leading space, then treat all chars as acronym
@@ -117,21 +123,34 @@ public class StringScore {
 	}
 	
 	public Score scoreMultipleContiguousSequencesAnyOrder(final String[] words, final StringCursorPrimitive target) {
+		StringCursorPrimitive[] wordPrimitives = new StringCursorPrimitive[words.length];
+		for (int index = 0; index < words.length; index++) {
+			wordPrimitives[index] = new StringCursorPrimitive(words[index]);
+		}
+		return scoreMultipleContiguousSequencesAnyOrder(wordPrimitives, target);
+	}
+	
+	public Score scoreMultipleContiguousSequencesAnyOrder(final StringCursorPrimitive[] words, final StringCursorPrimitive target) {
+		final ScoringScratch scratch = ScoringScratch.get();
 		int totalRank = 0;
-		IntArrayList matches = new IntArrayList();
-		for (String word : words) {
-			StringCursor targetCursor = new StringCursor(target).maskRegions(matches);
-			Score score = scoreAsContiguousSequence(new StringCursorPrimitive(word), targetCursor.getCursorPrimitive());
-			if ( score.rank <= 0) {
+		IntArrayList matches = scratch.sequenceMatches;
+		matches.clear();
+		for (StringCursorPrimitive word : words) {
+			// each word must be found outside of the regions matched by the previous words
+			StringCursorPrimitive maskedTarget = matches.size() == 0 ? target : scratch.maskedTarget.copyWithMask(target, matches);
+			int rank = contiguousSequenceRank(word, maskedTarget, scratch.targetCursor);
+			if ( rank <= 0) {
 				totalRank = 0;
 				break;  // all words must be found
 			}
-			totalRank += score.rank;
-			matches.addAll(score.matches);
+			totalRank += rank;
+			matches.addAll(scratch.targetCursor.markers());
 		}
 		
-		matches.sort(Comparator.naturalOrder());
-		return new Score(totalRank, matches);
+		if (totalRank == 0) return EMPTY_SCORE;
+		if (!scratch.keepMatches) return new Score(totalRank, NO_MATCHES);
+		IntArrays.quickSort(matches.elements(), 0, matches.size());
+		return new Score(totalRank, new IntArrayList(matches));
 	}
 	
 	public Score scoreAsContiguousSequence(String match, String target) {
@@ -140,26 +159,39 @@ public class StringScore {
 	public Score scoreAsContiguousSequence(StringCursorPrimitive match, StringCursorPrimitive target) {
 		if ((match == null) || (match.length() == 0)) return EMPTY_SCORE;
 		
-		StringCursor targetCursor = new StringCursor(target);
+		StringCursor targetCursor = ScoringScratch.get().targetCursor;
+		int rank = contiguousSequenceRank(match, target, targetCursor);
+		if (rank > 0)
+			return makeScore(rank, targetCursor);
+		return EMPTY_SCORE;
+	}
+	
+	/*
+	 * Rank of the first acceptable occurrence of match.  When found, the targetCursor is left marking the match.
+	 */
+	private int contiguousSequenceRank(StringCursorPrimitive match, StringCursorPrimitive target, StringCursor targetCursor) {
+		if ((match == null) || (match.length() == 0)) return 0;
 		
+		targetCursor.reset(target);
 		int rank = 0;
-		while (!targetCursor.moveCursorForwardIndexOf(match.asString()).cursorPositionTerminal()) {
+		while (!targetCursor.moveCursorForwardIndexOf(match).cursorPositionTerminal()) {
 			rank = contiguousSequenceRankingProvider.apply(match.asString(), targetCursor);
 			if (rank > 0) break;
 			targetCursor.moveCursorForward();
 		}
 		
 		if (rank > 0)
-			return new Score(rank, targetCursor.markFillRangeForward(match.length()).markers());
-		return EMPTY_SCORE;
+			targetCursor.markFillRangeForward(match.length());
+		return rank;
 	}
 	
 	public Score scoreAsAcronym(String match, String target) {
 		return scoreAsAcronym(new StringCursorPrimitive(match), new StringCursorPrimitive(target));
 	}
 	public Score scoreAsAcronym(StringCursorPrimitive searchInput, StringCursorPrimitive text) {
-		StringCursor matchesCursor = new StringCursor(text);
-		StringCursor inputCursor = new StringCursor(searchInput);
+		final ScoringScratch scratch = ScoringScratch.get();
+		StringCursor matchesCursor = scratch.targetCursor.reset(text);
+		StringCursor inputCursor = scratch.matchCursor.reset(searchInput);
 		
 		while (!matchesCursor.cursorPositionTerminal() && !inputCursor.cursorPositionTerminal()) {
 			matchesCursor.moveCursorForwardPartialWordStart();
@@ -174,7 +206,7 @@ public class StringScore {
 		// did we complete all matches from the input
 		if (inputCursor.cursorPositionTerminal()) {
 			int rank = acronymRankingProvider.apply(matchesCursor);
-			return new Score(rank, matchesCursor.markers());
+			return makeScore(rank, matchesCursor);
 		}
 		
 		return EMPTY_SCORE;
@@ -188,8 +220,9 @@ public class StringScore {
 	public Score scoreAsNonContiguousSequence(StringCursorPrimitive match, StringCursorPrimitive target) {
 		if ((match == null) || (match.length() < 2)) return EMPTY_SCORE;
 		
-		StringCursor targetCursor = new StringCursor(target);
-		StringCursor matchCursor = new StringCursor(match);
+		final ScoringScratch scratch = ScoringScratch.get();
+		StringCursor targetCursor = scratch.targetCursor.reset(target);
+		StringCursor matchCursor = scratch.matchCursor.reset(match);
 		matchCursor.addMark(0);
 		outer: while (!matchCursor.cursorPositionTerminal()) {
 			while (true) {
@@ -209,7 +242,7 @@ public class StringScore {
 			}
 			
 			targetCursor.markFillRangeForward(matchCursor.indexOfCursor() - matchCursor.indexOfCurrentMark());
-			targetCursor.maskRegions(targetCursor.markers());
+			targetCursor.maskRegions(targetCursor.markers(), scratch.maskedTarget);
 			if (!matchCursor.cursorPositionTerminal()) {
 				matchCursor.addMark(matchCursor.indexOfCursor());
 				matchCursor.setNextMarkCurrent();
@@ -220,11 +253,20 @@ public class StringScore {
 		}
 		
 		if (targetCursor.markers().size() == match.length()) {
-			return new Score(nonContiguousSequenceRankingProvider.apply(targetCursor), 	targetCursor.markers());
+			return makeScore(nonContiguousSequenceRankingProvider.apply(targetCursor), targetCursor);
 		} else {
 			return EMPTY_SCORE;
 		}
 	}
+	
+	/*
+	 * The cursor belongs to the scratch space and will be reused, so the score gets its own copy of the markers.
+	 */
+	private Score makeScore(int rank, StringCursor cursor) {
+		if (rank == 0) return EMPTY_SCORE;
+		if (!ScoringScratch.get().keepMatches) return new Score(rank, NO_MATCHES);
+		return new Score(rank, new IntArrayList(cursor.markers()));
+	}
 
 	private boolean veryWeakMatch(StringCursor targetCursor, StringCursor matchCursor) {
 		// If we are not at the start and selected count less than 2, this is too weak.
@@ -244,8 +286,8 @@ public class StringScore {
 		boolean partialMatchExists = false;
 		int lastFoundIndex = -1;
 		while(!matchCursor.cursorPositionTerminal() && !target.cursorPositionTerminal()) {
-			String remainingPartToMatch = matchCursor.text.substring(matchCursor.indexOfCurrentMark(), matchCursor.indexOfCursor() + 1);
-			target.moveCursorForwardIndexOf(remainingPartToMatch);
+			// search for the remaining part to match directly from the match text
+			target.moveCursorForwardIndexOf(matchCursor.text, matchCursor.indexOfCurrentMark(), matchCursor.indexOfCursor() + 1);
 			
 			if (!target.cursorPositionTerminal()) matchCursor.moveCursorForward();  // match was found in target, keep advancing match
 			else break; // no match found
@@ -256,9 +298,23 @@ public class StringScore {
 		return partialMatchExists;
 	}
 	
-	private String[] splitWords(String text) {
-		String[] words = text.split(" ");
-		return words;
+	/*
+	 * Scoring runs in parallel over large lists.  Each thread reuses its own cursors and buffers,
+	 * so items which do not match create no garbage.  A method must not hold a cursor across a call
+	 * to another scoring method which resets the same cursor.
+	 */
+	private static final class ScoringScratch {
+		private static final ThreadLocal<ScoringScratch> perThread = ThreadLocal.withInitial(ScoringScratch::new);
+		final StringCursor targetCursor = new StringCursor(StringCursorPrimitive.EMPTY);
+		final StringCursor matchCursor = new StringCursor(StringCursorPrimitive.EMPTY);
+		final StringCursorPrimitive maskedTarget = new StringCursorPrimitive(new char[0], new byte[0]);
+		final IntArrayList sequenceMatches = new IntArrayList();
+		// false while only ranking
+		boolean keepMatches = true;
+		
+		static ScoringScratch get() {
+			return perThread.get();
+		}
 	}
 	
 	public static class Score {
@@ -4,6 +4,8 @@ import java.util.function.BiFunction;
 import java.util.function.Function;
 
 public class StringScoreRanking {
+	private static final char[] CLASS_PROJECT = "[class]".toCharArray();
+	private static final char[] CLASS_SUFFIX  = ".class ".toCharArray();
 	
 	public static BiFunction<String, StringCursor, Integer> standardContiguousSequenceRanking() {
 		return StringScoreRanking::rankContiguousSequence;
@@ -11,7 +13,7 @@ public class StringScoreRanking {
 	
 	private static int rankContiguousSequence(String match, StringCursor targetCursor) {
 		int rank = 0;
-		final boolean fullMatch = targetCursor.partialWordAtCursor().equals(match);  // did we match full word
+		final boolean fullMatch = targetCursor.partialWordAtCursorEquals(match);  // did we match full word
 		if ( fullMatch ) {
 			rank = 3;
 		} else {
@@ -26,8 +28,7 @@ public class StringScoreRanking {
 			// Our match is at the very beginning
 			rank += 3;
 		}
-		String asString = targetCursor.text.asString();
-		if(!asString.contains("[class]") && !asString.contains(".class ")) {
+		if(!isClassItem(targetCursor.text)) {
 			rank += 4;
 		}
 		return rank;
@@ -51,8 +52,7 @@ public class StringScoreRanking {
 		if (countUnMarkedWords > 2) {
 			rank = 0;
 		}
-		String asString = targetCursor.text.asString();
-		if(!asString.contains("[class]") && !asString.contains(".class ")) {
+		if(!isClassItem(targetCursor.text)) {
 			rank += 2;
 		}
 		return rank;
@@ -84,7 +84,9 @@ public class StringScoreRanking {
 		// if we have acronym matches.  All are single char.
 		int previousMarkerIndex = -2;
 		boolean acronymMatching = true;
-		for (int markerIndex : targetCursor.markers()) {
+		final int[] markers = targetCursor.markers().elements();
+		for (int index = 0; index < targetCursor.markers().size(); index++) {
+			final int markerIndex = markers[index];
 			if (markerIndex - previousMarkerIndex == 1) {  // 2 markers are next to each other.  Not pure acronym match
 				acronymMatching = false;
 				break;
@@ -94,10 +96,13 @@ public class StringScoreRanking {
 		// A good acryonym match should have been matched by the acryonym score and ranker.
 		// Assume acronyms here are weak or out of order and discard
 		if (acronymMatching) rank -= 1;
-		String asString = targetCursor.text.asString();
-		if(!asString.contains("[class]") && !asString.contains(".class ")) {
+		if(!isClassItem(targetCursor.text)) {
 			rank += 2;
 		}
 		return rank;
 	}
+	
+	private static boolean isClassItem(StringCursorPrimitive text) {
+		return text.contains(CLASS_PROJECT) || text.contains(CLASS_SUFFIX);
+	}
 }
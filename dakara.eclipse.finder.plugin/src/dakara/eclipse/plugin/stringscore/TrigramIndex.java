@@ -0,0 +1,138 @@
+package dakara.eclipse.plugin.stringscore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/*
+ * Posting lists of the items containing each 3 char sequence of a corpus.
+ * Used to find the candidate items for a filter without scanning the whole list.
+ *
+ * Only filters which must be found as contiguous text can use the index.  That is literal filters (trailing space)
+ * and multi word filters.  The default fuzzy filter can match an acronym or a sequence of single chars at word starts,
+ * so an item without any of the filter's trigrams may still match it.  Those filters return null and all items are scored.
+ */
+public class TrigramIndex {
+	private static final int[] NO_ITEMS = new int[0];
+	private final Long2ObjectMap<int[]> postings;
+	// items which can not be excluded by the index.  A missing field is scored as not found in column mode,
+	// so the item can match without the trigrams of that column's filter.
+	private final int[] alwaysCandidates;
+
+	public TrigramIndex(SearchCorpus<?> corpus) {
+		final Long2ObjectOpenHashMap<IntArrayList> building = new Long2ObjectOpenHashMap<>();
+		final IntArrayList itemsWithMissingFields = new IntArrayList();
+		for (int itemIndex = 0; itemIndex < corpus.size(); itemIndex++) {
+			for (int fieldIndex = 0; fieldIndex < corpus.fieldCount(); fieldIndex++) {
+				StringCursorPrimitive field = corpus.fieldPrimitive(itemIndex, fieldIndex);
+				if (field == null) {
+					if (itemsWithMissingFields.size() == 0 || itemsWithMissingFields.getInt(itemsWithMissingFields.size() - 1) != itemIndex) itemsWithMissingFields.add(itemIndex);
+					continue;
+				}
+				addTrigrams(building, field, itemIndex);
+			}
+		}
+
+		postings = new Long2ObjectOpenHashMap<>(building.size());
+		for (Long2ObjectMap.Entry<IntArrayList> entry : building.long2ObjectEntrySet()) {
+			postings.put(entry.getLongKey(), entry.getValue().toIntArray());
+		}
+		alwaysCandidates = itemsWithMissingFields.toIntArray();
+	}
+
+	private static void addTrigrams(Long2ObjectOpenHashMap<IntArrayList> building, StringCursorPrimitive field, int itemIndex) {
+		for (int index = 0; index + 3 <= field.length(); index++) {
+			if (!isIndexed(field, index)) continue;
+			IntArrayList items = building.get(trigramKey(field, index));
+			if (items == null) {
+				items = new IntArrayList(4);
+				building.put(trigramKey(field, index), items);
+			}
+			// items are added in order, so a repeat can only be the last entry
+			if (items.size() == 0 || items.getInt(items.size() - 1) != itemIndex) items.add(itemIndex);
+		}
+	}
+
+	/*
+	 * Trigrams with white space are not indexed.  The joined text of all columns has spaces between the columns
+	 * which are not part of any field.
+	 */
+	private static boolean isIndexed(StringCursorPrimitive text, int index) {
+		return !Character.isWhitespace(text.charAt(index)) && !Character.isWhitespace(text.charAt(index + 1)) && !Character.isWhitespace(text.charAt(index + 2));
+	}
+
+	private static long trigramKey(StringCursorPrimitive text, int index) {
+		return ((long)text.charAt(index) << 32) | ((long)text.charAt(index + 1) << 16) | text.charAt(index + 2);
+	}
+
+	/*
+	 * Sorted indexes of the items which can possibly match the filters, or null when the filters can not use the index.
+	 * In column mode every filtered column must match, so the trigrams of all columns are combined.
+	 */
+	public int[] candidates(List<ScoreFilterOptions> filters) {
+		final List<int[]> postingLists = new ArrayList<>();
+		for (ScoreFilterOptions filter : filters) {
+			if (!isContiguousOnly(filter)) continue;
+			for (StringCursorPrimitive word : filter.scoreAsLiteral ? new StringCursorPrimitive[] {filter.filterTextCursorPrimitive} : filter.wordPrimitives) {
+				for (int index = 0; index + 3 <= word.length(); index++) {
+					if (!isIndexed(word, index)) continue;
+					int[] items = postings.get(trigramKey(word, index));
+					postingLists.add(items == null ? NO_ITEMS : items);
+				}
+			}
+		}
+		if (postingLists.size() == 0) return null;
+
+		// start from the shortest list, the result can only get smaller
+		postingLists.sort((first, second) -> Integer.compare(first.length, second.length));
+		int[] candidates = postingLists.get(0);
+		for (int index = 1; index < postingLists.size() && candidates.length > 0; index++) {
+			candidates = intersect(candidates, postingLists.get(index));
+		}
+		return union(candidates, alwaysCandidates);
+	}
+
+	/*
+	 * Filters which only match when each word is found as is in the target
+	 */
+	private static boolean isContiguousOnly(ScoreFilterOptions filter) {
+		if (filter.filterTextCursorPrimitive.length() == 0 || filter.scoreAsAcronym) return false;
+		return filter.scoreAsLiteral || filter.wordPrimitives.length > 1;
+	}
+
+	private static int[] intersect(int[] first, int[] second) {
+		final int[] result = new int[Math.min(first.length, second.length)];
+		int size = 0;
+		int firstIndex = 0, secondIndex = 0;
+		while (firstIndex < first.length && secondIndex < second.length) {
+			if (first[firstIndex] < second[secondIndex]) firstIndex++;
+			else if (first[firstIndex] > second[secondIndex]) secondIndex++;
+			else {
+				result[size++] = first[firstIndex];
+				firstIndex++;
+				secondIndex++;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	private static int[] union(int[] first, int[] second) {
+		if (second.length == 0) return first;
+		final int[] result = new int[first.length + second.length];
+		int size = 0;
+		int firstIndex = 0, secondIndex = 0;
+		while (firstIndex < first.length || secondIndex < second.length) {
+			if (secondIndex == second.length || (firstIndex < first.length && first[firstIndex] < second[secondIndex])) result[size++] = first[firstIndex++];
+			else if (firstIndex == first.length || second[secondIndex] < first[firstIndex]) result[size++] = second[secondIndex++];
+			else {
+				result[size++] = first[firstIndex++];
+				secondIndex++;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+}
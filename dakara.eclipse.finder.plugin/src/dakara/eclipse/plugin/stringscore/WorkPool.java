@@ -0,0 +1,116 @@
+package dakara.eclipse.plugin.stringscore;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+import java.util.stream.IntStream;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+
+/*
+ * Fork join pools for the parallel work of the finder, so it doesn't share the common pool with the rest of the IDE.
+ * Ranking is interactive and has its own pool.  Indexing, such as building a corpus or collecting the workspace types,
+ * runs on lower priority threads of another pool so it can't starve ranking.
+ *
+ * Parallel streams started by work running in a pool fork into that pool.  Sorts go through sort(), fastutil's
+ * parallel sorts start a pool of their own for every call.
+ *
+ * System properties:
+ *   dakara.finder.ranking.parallelism  - threads for ranking, defaults to the number of processors
+ *   dakara.finder.indexing.parallelism - threads for indexing, defaults to half the number of processors
+ *   dakara.finder.sequential.threshold - fewer items than this are not worth forking and run on the calling thread
+ */
+public class WorkPool {
+	private static final int SEQUENTIAL_THRESHOLD = Integer.getInteger("dakara.finder.sequential.threshold", 2048);
+	public static final WorkPool RANKING = new WorkPool("finder-ranking", Integer.getInteger("dakara.finder.ranking.parallelism", Runtime.getRuntime().availableProcessors()), Thread.NORM_PRIORITY);
+	public static final WorkPool INDEXING = new WorkPool("finder-indexing", Integer.getInteger("dakara.finder.indexing.parallelism", Runtime.getRuntime().availableProcessors() / 2), Thread.MIN_PRIORITY);
+
+	private final ForkJoinPool pool;
+
+	private WorkPool(String name, int parallelism, int threadPriority) {
+		pool = new ForkJoinPool(Math.max(1, parallelism), forkJoinPool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+			thread.setName(name + "-" + thread.getPoolIndex());
+			thread.setDaemon(true);
+			thread.setPriority(threadPriority);
+			return thread;
+		}, null, false);
+	}
+
+	/*
+	 * Runs the work in this pool and waits for it.  Exceptions of the work are rethrown.
+	 */
+	public <R> R call(Supplier<R> work) {
+		if (ForkJoinTask.getPool() == pool) return work.get();
+		return pool.submit(work::get).join();
+	}
+
+	public void run(Runnable work) {
+		call(() -> {
+			work.run();
+			return null;
+		});
+	}
+
+	/*
+	 * Stream work over size items.  It runs in this pool on a parallel stream when there are enough items to be worth forking,
+	 * otherwise on a sequential stream on the calling thread.
+	 */
+	public <S extends BaseStream<?, S>, R> R call(S stream, int size, Function<S, R> work) {
+		if (size < SEQUENTIAL_THRESHOLD) return work.apply(stream.sequential());
+		return call(() -> work.apply(stream.parallel()));
+	}
+
+	public <S extends BaseStream<?, S>> void run(S stream, int size, Consumer<S> work) {
+		call(stream, size, parallelStream -> {
+			work.accept(parallelStream);
+			return null;
+		});
+	}
+
+	/*
+	 * Sorts [from, to) of the array in this pool.  Chunks are sorted in parallel, then merged a round of pairs at a time.
+	 * Small ranges are sorted on the calling thread.
+	 */
+	public void sort(int[] array, int from, int to, IntComparator comparator) {
+		final int length = to - from;
+		if (length < SEQUENTIAL_THRESHOLD * 2) {
+			IntArrays.quickSort(array, from, to, comparator);
+			return;
+		}
+		final int chunkSize = Math.max(SEQUENTIAL_THRESHOLD, (length + pool.getParallelism() * 4 - 1) / (pool.getParallelism() * 4));
+		final int chunkCount = (length + chunkSize - 1) / chunkSize;
+		run(() -> {
+			IntStream.range(0, chunkCount).parallel().forEach(chunk -> IntArrays.quickSort(array, from + chunk * chunkSize, Math.min(to, from + (chunk + 1) * chunkSize), comparator));
+			// runs are merged back and forth between the range of the array and a buffer
+			final int[] buffer = new int[length];
+			boolean inBuffer = false;
+			for (int width = chunkSize; width < length; width *= 2) {
+				final int[] source = inBuffer ? buffer : array, target = inBuffer ? array : buffer;
+				final int sourceStart = inBuffer ? 0 : from, targetStart = inBuffer ? from : 0, runWidth = width;
+				IntStream.range(0, (length + 2 * width - 1) / (2 * width)).parallel().forEach(pair -> {
+					final int start = pair * 2 * runWidth;
+					final int middle = Math.min(length, start + runWidth);
+					final int end = Math.min(length, start + 2 * runWidth);
+					merge(source, sourceStart + start, sourceStart + middle, sourceStart + end, target, targetStart + start, comparator);
+				});
+				inBuffer = !inBuffer;
+			}
+			if (inBuffer) System.arraycopy(buffer, 0, array, from, length);
+		});
+	}
+	
+	private static void merge(int[] source, int start, int middle, int end, int[] target, int targetStart, IntComparator comparator) {
+		int first = start, second = middle, index = targetStart;
+		while (first < middle && second < end) {
+			target[index++] = comparator.compare(source[second], source[first]) < 0 ? source[second++] : source[first++];
+		}
+		System.arraycopy(source, first, target, index, middle - first);
+		System.arraycopy(source, second, target, index + middle - first, end - second);
+	}
+}
@@ -0,0 +1,28 @@
+package dakara.eclipse.plugin.platform;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ResourceItemTest {
+	@Test
+	public void plainPathIsShownAsItIs() {
+		assertEquals("src/main/java/dakara", new ResourceItem("Main.java", "src/main/java/dakara", "core").displayPath);
+		assertEquals("", new ResourceItem("pom.xml", null, "core").displayPath);
+	}
+
+	@Test
+	public void jarPathIsShownFromTheJarName() {
+		final ResourceItem item = new ResourceItem("Assert.class", "/home/user/.m2/repository/junit/4.12/junit-4.12.jar|org/junit/Assert.class", "core");
+		assertEquals("junit-4.12.jar|org/junit/", item.displayPath);
+	}
+
+	@Test
+	public void malformedJarPathIsShownAsItIs() {
+		// the class segment is found before the jar name
+		final String classBeforeJar = "/lib/Assert.class/junit.jar|org/junit/Assert.class";
+		assertEquals(classBeforeJar, new ResourceItem("Assert.class", classBeforeJar, "core").displayPath);
+		assertEquals("|org/junit/Assert.class", new ResourceItem("Assert.class", "|org/junit/Assert.class", "core").displayPath);
+		assertEquals("/|", ResourceItem.displayPathOf("/|"));
+	}
+}
@@ -0,0 +1,213 @@
+package dakara.eclipse.plugin.stringscore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dakara.eclipse.plugin.kavi.picklist.InputCommand;
+
+/*
+ * The ranking reuses previous matches and results.  Whatever it reuses, a query must rank the same as a fresh scan
+ * of the list with a new ListRankAndFilter.
+ */
+public class ListRankAndFilterTest {
+	private static ListRankAndFilter<String[]> rankAndFilter() {
+		return ListRankAndFilter.make((String[] item) -> item[0])
+				.addField("name", item -> item[0])
+				.addField("project", item -> item[1])
+				.addField("path", item -> item[2]);
+	}
+
+	static List<String> ranked(List<RankedItem<String[]>> result) {
+		final List<String> rows = new ArrayList<>();
+		for (RankedItem<String[]> rankedItem : result) {
+			rows.add(rankedItem.totalScore() + " " + Arrays.toString(rankedItem.dataItem));
+		}
+		return rows;
+	}
+
+	static List<String> freshScan(List<String[]> items, String filter) {
+		return ranked(rankAndFilter().rankAndFilter(InputCommand.parse(filter), items));
+	}
+
+	/*
+	 * Types the input a char at a time into one list, which reuses what it can, and compares every step with a fresh scan
+	 */
+	private static void assertTypingMatchesFreshScan(ListRankAndFilter<String[]> rankAndFilter, List<String[]> items, String... inputs) {
+		for (String input : inputs) {
+			for (int length = 1; length <= input.length(); length++) {
+				final String filter = input.substring(0, length);
+				assertEquals("filter '" + filter + "'", freshScan(items, filter), ranked(rankAndFilter.rankAndFilter(InputCommand.parse(filter), items)));
+			}
+		}
+	}
+
+	@Test
+	public void filteringAnotherColumnFindsItemsWithMissingFields() {
+		final List<String[]> items = Arrays.asList(
+				new String[] {"pom.xml", "core", ""},
+				new String[] {"Main.java", "core", "src/main"},
+				new String[] {"README.md", "ui", null},
+				new String[] {"Source.java", "ui", "src"});
+		final ListRankAndFilter<String[]> rankAndFilter = rankAndFilter();
+
+		assertEquals(2, rankAndFilter.rankAndFilter(InputCommand.parse(",,src"), items).size());
+		// root level files have no path, they match once the project is filtered too
+		final List<String> refined = ranked(rankAndFilter.rankAndFilter(InputCommand.parse(",core,src"), items));
+		assertEquals(freshScan(items, ",core,src"), refined);
+		assertEquals(2, refined.size());
+	}
+
+	@Test
+	public void missingFieldsHaveNoText() {
+		final List<String[]> items = Arrays.asList(
+				new String[] {"pom.xml", null, null},
+				new String[] {"README.md", "", null},
+				new String[] {"Nullable.java", "core", "src/main"});
+		assertEquals(Arrays.asList("Nullable.java"), names(rankAndFilter().rankAndFilter(InputCommand.parse("null"), items)));
+		assertEquals(Arrays.asList("Nullable.java"), names(rankAndFilter().withTrigramIndex().rankAndFilter(InputCommand.parse("null "), items)));
+		// the columns of the joined text still line up with the fields
+		final RankedItem<String[]> readme = rankAndFilter().rankAndFilter(InputCommand.parse("readme"), items).get(0);
+		assertEquals(6, readme.getColumnScore(0).matches.size());
+		assertEquals(0, readme.getColumnScore(1).matches.size());
+	}
+
+	private static List<String> names(List<RankedItem<String[]>> result) {
+		final List<String> names = new ArrayList<>();
+		for (RankedItem<String[]> rankedItem : result) {
+			names.add(rankedItem.dataItem[0]);
+		}
+		return names;
+	}
+
+	@Test
+	public void refinedColumnFiltersMatchFreshScan() {
+		final List<String[]> items = RandomItems.items(3000, 7);
+		assertTypingMatchesFreshScan(rankAndFilter(), items, "ir,E", "ode,l", ",,src", ",core,src", "abs,core", "list,,sr", "map,ui!ir", ",!core,java");
+	}
+
+	@Test
+	public void refinedFiltersMatchFreshScan() {
+		final List<String[]> items = RandomItems.items(3000, 11);
+		assertTypingMatchesFreshScan(rankAndFilter(), items, "abstract list", "handler ", " hcf", "kavi!test", "score cursor");
+	}
+
+	@Test
+	public void refinedFiltersWithTrigramIndexMatchFreshScan() {
+		final List<String[]> items = RandomItems.items(3000, 13);
+		assertTypingMatchesFreshScan(rankAndFilter().withTrigramIndex(), items, "abstract list", "filter ", "ir,E", ",core,src", "code node");
+	}
+
+	@Test
+	public void inverseFilterMatchesRowsOfOnlyWhiteSpace() {
+		final List<String[]> items = Arrays.asList(
+				new String[] {"", " ", ""},
+				new String[] {"", "", "\t"},
+				new String[] {"Main.java", "core", "src"},
+				new String[] {"Index.xml", "core", "src"});
+		// blank rows have nothing to exclude, same as before the rows were packed
+		final List<RankedItem<String[]>> result = rankAndFilter().rankAndFilter(InputCommand.parse("!x"), items);
+		assertEquals(3, result.size());
+	}
+
+	/*
+	 * Backspace and retyping are served from the cache, which also brings back the matches the next input refines
+	 */
+	private static void assertEditsMatchFreshScan(ListRankAndFilter<String[]> rankAndFilter, List<String[]> items, String... filters) {
+		for (String filter : filters) {
+			assertEquals("filter '" + filter + "'", freshScan(items, filter), ranked(rankAndFilter.rankAndFilter(InputCommand.parse(filter), items)));
+		}
+	}
+
+	@Test
+	public void backspaceAndRetypeMatchFreshScan() {
+		final List<String[]> items = RandomItems.items(3000, 17);
+		assertEditsMatchFreshScan(rankAndFilter(), items,
+				"a", "ab", "abs", "abst", "abs", "ab", "abc", "ab", "abs", "abst", "abstr",
+				"ir,", "ir,E", "ir,", "ir,Ex", "ir,E", "ir,Ev",
+				",,src", ",core,src", ",,src", ",co,src", ",core,src", ",core,sr",
+				"kavi!", "kavi!t", "kavi!", "kavi!te", "kavi", "kavi list", "kavi", "kavi li");
+	}
+
+	@Test
+	public void cachedResultIsServedAgain() {
+		final List<String[]> items = RandomItems.items(3000, 19);
+		final ListRankAndFilter<String[]> rankAndFilter = rankAndFilter();
+		final List<RankedItem<String[]>> first = rankAndFilter.rankAndFilter(InputCommand.parse("abs,core"), items);
+		rankAndFilter.rankAndFilter(InputCommand.parse("abs,cor"), items);
+		final List<RankedItem<String[]>> again = rankAndFilter.rankAndFilter(InputCommand.parse("abs,core"), items);
+		assertSame(first, again);
+		assertEquals(freshScan(items, "abs,core"), ranked(again));
+	}
+
+	@Test
+	public void emptyFilterIsSortedWithoutAnalyzingTheItems() {
+		final List<String[]> items = RandomItems.items(3000, 29);
+		final AtomicInteger resolvedFields = new AtomicInteger();
+		final ListRankAndFilter<String[]> rankAndFilter = ListRankAndFilter.make((String[] item) -> item[0])
+				.addField("name", item -> { resolvedFields.incrementAndGet(); return item[0]; });
+		final List<String> sortedNames = new ArrayList<>();
+		items.stream().sorted(Comparator.comparing((String[] item) -> item[0])).forEach(item -> sortedNames.add(Arrays.toString(item)));
+
+		assertEquals(sortedNames, rows(rankAndFilter.rankAndFilter(InputCommand.parse(""), items)));
+		assertEquals(0, resolvedFields.get());
+		// and the same from the corpus once a filter has built it
+		rankAndFilter.rankAndFilter(InputCommand.parse("abs"), items);
+		assertEquals(items.size(), resolvedFields.get());
+		assertEquals(sortedNames, rows(rankAndFilter.rankAndFilter(InputCommand.parse(""), items)));
+	}
+
+	private static List<String> rows(List<RankedItem<String[]>> result) {
+		final List<String> rows = new ArrayList<>();
+		for (RankedItem<String[]> rankedItem : result) {
+			rows.add(Arrays.toString(rankedItem.dataItem));
+		}
+		return rows;
+	}
+
+	@Test
+	public void onlyRankingsOfTheWholeListAreTimed() {
+		final List<String[]> items = RandomItems.items(3000, 23);
+		final List<String> timedFilters = new ArrayList<>();
+		final ListRankAndFilter<String[]> rankAndFilter = rankAndFilter().withRankingTimeListener((inputCommand, rankingNanos) -> timedFilters.add(inputCommand.filterText));
+		rankAndFilter.rankAndFilter(InputCommand.parse(""), items);
+		rankAndFilter.rankAndFilter(InputCommand.parse("kavi lis"), items);
+		// refines the matches of kavi lis
+		rankAndFilter.rankAndFilter(InputCommand.parse("kavi list"), items);
+		// cached
+		rankAndFilter.rankAndFilter(InputCommand.parse("kavi lis"), items);
+		rankAndFilter.rankAndFilter(InputCommand.parse("abs"), items);
+		assertEquals(Arrays.asList("kavi lis", "abs"), timedFilters);
+	}
+
+	@Test
+	public void fieldOrdinalsFollowTheOrderFieldsWereAdded() {
+		final ListRankAndFilter<String[]> rankAndFilter = ListRankAndFilter.make((String[] item) -> item[0])
+				.addField("path", item -> item[2])
+				.addField("name", item -> item[0]);
+		assertEquals(0, rankAndFilter.fieldOrdinal("path"));
+		assertEquals(1, rankAndFilter.fieldOrdinal("name"));
+		assertEquals(-1, rankAndFilter.fieldOrdinal("project"));
+
+		final List<String[]> items = Collections.singletonList(new String[] {"Main.java", "core", "src/main"});
+		final RankedItem<String[]> ranked = rankAndFilter.rankAndFilter(InputCommand.parse("src,main"), items).get(0);
+		// the path column filter matched the start of the path, the name filter the start of the name
+		assertEquals(0, ranked.getColumnScore(rankAndFilter.fieldOrdinal("path")).matches.getInt(0));
+		assertEquals(0, ranked.getColumnScore(rankAndFilter.fieldOrdinal("name")).matches.getInt(0));
+		assertEquals(3, ranked.getColumnScore(rankAndFilter.fieldOrdinal("path")).matches.size());
+		assertEquals(4, ranked.getColumnScore(rankAndFilter.fieldOrdinal("name")).matches.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addingAFieldTwiceFails() {
+		rankAndFilter().addField("name", item -> item[0]);
+	}
+}
@@ -0,0 +1,86 @@
+package dakara.eclipse.plugin.stringscore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/*
+ * One pass of the automaton must find a pattern exactly when searching for each pattern on its own does
+ */
+public class MultiPatternMatcherTest {
+	// few chars so patterns overlap and share prefixes and suffixes, with some outside ascii
+	private static final char[] ALPHABET = {'a', 'b', 'c', 'A', '.', '/', 'é', 'ü', '中', 'ÿ', 'Ā'};
+
+	private static boolean foundSeparately(List<String> patterns, String text) {
+		for (String pattern : patterns) {
+			if (text.indexOf(pattern) >= 0) return true;
+		}
+		return false;
+	}
+
+	private static String randomText(Random random, int maxLength) {
+		final StringBuilder text = new StringBuilder();
+		for (int index = random.nextInt(maxLength + 1); index > 0; index--) text.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+		return text.toString();
+	}
+
+	/*
+	 * The text as a slice in the middle of larger arrays, as the corpus holds it
+	 */
+	private static StringCursorPrimitive slice(String text) {
+		final char[] chars = ("zz" + text + "zz").toCharArray();
+		return new StringCursorPrimitive(chars, new byte[chars.length], 2, text.length());
+	}
+
+	@Test
+	public void matchesSameAsSearchingEachPattern() {
+		final Random random = new Random(17);
+		for (int round = 0; round < 3000; round++) {
+			final List<String> patterns = new ArrayList<>();
+			for (int count = 1 + random.nextInt(6); count > 0; count--) patterns.add(randomText(random, 4));
+			final MultiPatternMatcher matcher = new MultiPatternMatcher(patterns);
+			for (int text = 0; text < 20; text++) {
+				final String target = randomText(random, 16);
+				assertEquals(patterns + " in '" + target + "'", foundSeparately(patterns, target), matcher.foundIn(slice(target)));
+			}
+		}
+	}
+
+	@Test
+	public void findsPatternsReachedThroughFailures() {
+		final MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("he", "she", "hers", "his"));
+		assertTrue(matcher.foundIn(slice("ushers")));
+		assertTrue(matcher.foundIn(slice("xsh.his")));
+		assertTrue(matcher.foundIn(slice("ahe")));
+		assertFalse(matcher.foundIn(slice("shi hs sh")));
+
+		final MultiPatternMatcher nested = new MultiPatternMatcher(Arrays.asList("abcd", "bc"));
+		assertTrue(nested.foundIn(slice("abce")));
+		assertFalse(nested.foundIn(slice("abdc")));
+	}
+
+	@Test
+	public void emptyPatternMatchesEverything() {
+		assertTrue(new MultiPatternMatcher(Arrays.asList("xyz", "")).foundIn(slice("")));
+		assertTrue(new MultiPatternMatcher(Arrays.asList("")).foundIn(slice("abc")));
+		assertFalse(new MultiPatternMatcher(Collections.<String>emptyList()).foundIn(slice("abc")));
+	}
+
+	@Test
+	public void findsCharsOutsideAscii() {
+		final MultiPatternMatcher matcher = new MultiPatternMatcher(Arrays.asList("über", "中文"));
+		assertTrue(matcher.foundIn(slice("das über.java")));
+		assertTrue(matcher.foundIn(slice("中文")));
+		assertFalse(matcher.foundIn(slice("uber 中 文")));
+		// a char outside ascii whose low byte is an ascii pattern char
+		assertFalse(new MultiPatternMatcher(Arrays.asList("a")).foundIn(slice("šѡ")));
+	}
+}
@@ -0,0 +1,104 @@
+package dakara.eclipse.plugin.stringscore;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/*
+ * However far it is read, the order must be the same as a full stable sort by rank, highest first, then tie break key
+ */
+public class PartialRankOrderTest {
+	private static List<Integer> fullSort(int[] ranks, int[] tieBreakKeys) {
+		final List<Integer> positions = new ArrayList<>();
+		for (int position = 0; position < ranks.length; position++) positions.add(position);
+		positions.sort(Comparator.<Integer>comparingInt(position -> ranks[position]).reversed().thenComparingInt(position -> tieBreakKeys[position]));
+		return positions;
+	}
+
+	private static List<Integer> read(PartialRankOrder order, int count) {
+		final List<Integer> positions = new ArrayList<>();
+		for (int index = 0; index < count; index++) positions.add(order.positionAt(index));
+		return positions;
+	}
+
+	private static int[] random(Random random, int length, int bound) {
+		return random.ints(length, 0, bound).toArray();
+	}
+
+	/*
+	 * Reads a prefix first, then more, then all of it.  Each read must agree with the full sort.
+	 */
+	private static void assertReadsMatchFullSort(int[] ranks, int[] tieBreakKeys, int... prefixes) {
+		final List<Integer> expected = fullSort(ranks, tieBreakKeys);
+		final PartialRankOrder order = new PartialRankOrder(ranks, tieBreakKeys);
+		assertEquals(ranks.length, order.size());
+		for (int prefix : prefixes) {
+			final int count = Math.min(prefix, ranks.length);
+			assertEquals("first " + count, expected.subList(0, count), read(order, count));
+		}
+		assertEquals(expected, read(order, ranks.length));
+	}
+
+	@Test
+	public void partialReadsMatchFullSort() {
+		final Random random = new Random(5);
+		for (int length : new int[] {0, 1, 10, 255, 256, 257, 5000, 50_000}) {
+			// few ranks, so buckets are large and are selected from rather than sorted
+			assertReadsMatchFullSort(random(random, length, 3), random(random, length, length + 1), 1, 20, 256, 300, 1000, 4097, 20_000);
+			// many equal tie break keys, broken by position
+			assertReadsMatchFullSort(random(random, length, 5), random(random, length, 4), 0, 100, 2000);
+		}
+	}
+
+	@Test
+	public void readingOutOfOrderMatchesFullSort() {
+		final Random random = new Random(7);
+		final int[] ranks = random(random, 30_000, 2);
+		final int[] tieBreakKeys = random(random, 30_000, 1000);
+		final List<Integer> expected = fullSort(ranks, tieBreakKeys);
+		final PartialRankOrder order = new PartialRankOrder(ranks, tieBreakKeys);
+		for (int index : new int[] {5, 29_999, 300, 14_000, 0, 256, 20_001}) {
+			assertEquals("index " + index, expected.get(index).intValue(), order.positionAt(index));
+		}
+	}
+
+	@Test
+	public void bucketsMatchFullSort() {
+		final Random random = new Random(11);
+		for (int length : new int[] {1, 100, 5000, 40_000}) {
+			// one bucket per rank, many of them small
+			assertReadsMatchFullSort(random(random, length, 4000), random(random, length, 50), 1, 256, 3000);
+			// ranks below zero, as scores of missing fields are
+			final int[] ranks = random.ints(length, -3, 40).toArray();
+			assertReadsMatchFullSort(ranks, random(random, length, length + 1), 10, 700, 9000);
+			// all in one bucket
+			assertReadsMatchFullSort(new int[length], random(random, length, 7), 1, 256, 10_000);
+		}
+	}
+
+	@Test
+	public void rankRangesTooWideToCountMatchFullSort() {
+		final Random random = new Random(13);
+		for (int length : new int[] {2, 100, 5000, 40_000}) {
+			final int[] ranks = random(random, length, 20);
+			ranks[0] = 4096;
+			assertReadsMatchFullSort(ranks, random(random, length, 30), 1, 256, 3000);
+			assertReadsMatchFullSort(random.ints(length).toArray(), random(random, length, 30), 1, 256, 3000);
+		}
+		// just inside the counting range
+		final int[] ranks = random(random, 10_000, 4096);
+		ranks[0] = 0;
+		ranks[1] = 4095;
+		assertReadsMatchFullSort(ranks, random(random, 10_000, 30), 1, 256, 3000);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void readingPastTheEndFails() {
+		new PartialRankOrder(new int[] {1, 2}, new int[] {0, 0}).positionAt(2);
+	}
+}
@@ -0,0 +1,38 @@
+package dakara.eclipse.plugin.stringscore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Names, projects and paths made from a few words, like the resources of a workspace.
+ * Some projects and paths are missing, null or empty.
+ */
+class RandomItems {
+	private static final String[] WORDS = {"Abstract", "List", "Map", "Http", "Client", "Factory", "Test", "Impl", "Util", "Resource",
+			"Handler", "Finder", "Kavi", "Item", "Score", "Cursor", "Rank", "Filter", "Column", "Node", "Code", "Event", "Ir"};
+	private static final String[] PROJECTS = {"core", "ui", "model", "server", "tools", "ir-engine"};
+	private static final String[] FOLDERS = {"src", "main", "java", "test", "dakara", "node", "code", "lib"};
+
+	static List<String[]> items(int count, long seed) {
+		final Random random = new Random(seed);
+		final List<String[]> items = new ArrayList<>();
+		for (int index = 0; index < count; index++) {
+			StringBuilder name = new StringBuilder();
+			for (int word = 0; word < 1 + random.nextInt(3); word++) {
+				name.append(WORDS[random.nextInt(WORDS.length)]);
+			}
+			name.append(random.nextInt(4) == 0 ? ".xml" : ".java");
+			
+			final int missing = random.nextInt(10);
+			final String project = missing == 0 ? null : missing == 1 ? "" : PROJECTS[random.nextInt(PROJECTS.length)];
+			StringBuilder path = new StringBuilder();
+			for (int folder = 0; folder < random.nextInt(4); folder++) {
+				if (folder > 0) path.append('/');
+				path.append(FOLDERS[random.nextInt(FOLDERS.length)]);
+			}
+			items.add(new String[] {name.toString(), project, missing == 2 ? null : path.toString()});
+		}
+		return items;
+	}
+}
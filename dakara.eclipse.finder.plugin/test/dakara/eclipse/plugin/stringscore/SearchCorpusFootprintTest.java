@@ -0,0 +1,40 @@
+package dakara.eclipse.plugin.stringscore;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/*
+ * A corpus of about a million chars, the size of a large workspace.  Each analyzed char takes two bytes of text
+ * and one byte of flags, the rest of the corpus is a few ints per item.
+ */
+public class SearchCorpusFootprintTest {
+	private static final List<FieldResolver<String[]>> FIELDS = Arrays.asList(
+			new FieldResolver<>("name", item -> item[0]),
+			new FieldResolver<>("project", item -> item[1]),
+			new FieldResolver<>("path", item -> item[2]));
+
+	@Test
+	public void corpusTakesFewBytesPerChar() {
+		final List<String[]> items = RandomItems.items(40000, 31);
+		final SearchCorpus<String[]> corpus = new SearchCorpus<>(items, FIELDS, item -> item[0]);
+
+		long rowChars = 0;
+		for (int itemIndex = 0; itemIndex < corpus.size(); itemIndex++) {
+			if (corpus.rowPrimitive(itemIndex) != null) rowChars += corpus.rowPrimitive(itemIndex).length();
+		}
+		long valueChars = 0;
+		for (int valueId = 0; valueId < corpus.valueCount(); valueId++) {
+			valueChars += corpus.valuePrimitive(valueId).length();
+		}
+		assertTrue("about a million chars, was " + rowChars, rowChars > 900_000 && rowChars < 1_500_000);
+
+		// 3 bytes per char is the text and one byte of flags, with int flags it would be 6.  Each item has a value id,
+		// a column break and a few offsets, masks and sort positions.  Each value has an offset and a mask.
+		final long expectedBytes = (rowChars + valueChars) * 3 + corpus.size() * 64L + corpus.valueCount() * 16L;
+		assertTrue("corpus of " + (rowChars + valueChars) + " chars took " + corpus.footprintBytes() + " bytes", corpus.footprintBytes() <= expectedBytes);
+	}
+}
@@ -0,0 +1,76 @@
+package dakara.eclipse.plugin.stringscore;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import dakara.eclipse.plugin.kavi.picklist.InputCommand;
+
+/*
+ * The index may only leave out items which can not match, so every item a full scan finds must be a candidate
+ */
+public class TrigramIndexTest {
+	private static final List<FieldResolver<String[]>> FIELDS = Arrays.asList(
+			new FieldResolver<>("name", item -> item[0]),
+			new FieldResolver<>("project", item -> item[1]),
+			new FieldResolver<>("path", item -> item[2]));
+
+	private static List<ScoreFilterOptions> filters(InputCommand inputCommand) {
+		final List<ScoreFilterOptions> filters = new ArrayList<>();
+		for (int column = 0; column < (inputCommand.isColumnFiltering ? FIELDS.size() : 1); column++) {
+			filters.add(inputCommand.getColumnFilterOptions(column));
+		}
+		return filters;
+	}
+
+	private static void assertCandidatesIncludeMatches(List<String[]> items, String... filters) {
+		final SearchCorpus<String[]> corpus = new SearchCorpus<>(items, FIELDS, item -> item[0]);
+		final ListRankAndFilter<String[]> fullScan = ListRankAndFilter.make((String[] item) -> item[0]);
+		for (FieldResolver<String[]> field : FIELDS) fullScan.addField(field.fieldId, field.fieldResolver);
+
+		for (String filter : filters) {
+			final InputCommand inputCommand = InputCommand.parse(filter);
+			final int[] candidates = corpus.trigramIndex().candidates(filters(inputCommand));
+			// null when the filter can not use the index, and all items are scored
+			if (candidates == null) continue;
+			for (RankedItem<String[]> match : fullScan.rankAndFilter(inputCommand, items)) {
+				final int itemIndex = items.indexOf(match.dataItem);
+				assertTrue("filter '" + filter + "' misses " + Arrays.toString(match.dataItem), Arrays.binarySearch(candidates, itemIndex) >= 0);
+			}
+		}
+	}
+
+	@Test
+	public void candidatesIncludeEveryMatch() {
+		assertCandidatesIncludeMatches(RandomItems.items(5000, 23),
+				"handler ", "abstract list", "list impl", "core src", "xml ui", "src/main ", "ir-eng ", "main ", "java main",
+				",core ,src ", "abs list,core", ",,java/test ", "kavi item,ui ", "score cursor!test");
+	}
+
+	@Test
+	public void candidatesIncludeEveryMatchOfItemsWithAllFields() {
+		// items with a missing field are always candidates, without them the postings alone must find the matches
+		final List<String[]> items = new ArrayList<>();
+		for (String[] item : RandomItems.items(8000, 29)) {
+			if (item[1] != null && item[1].length() > 0 && item[2] != null && item[2].length() > 0) items.add(item);
+		}
+		assertCandidatesIncludeMatches(items,
+				"handler ", "abstract list", "list impl", "core src", "xml ui", "ir-eng ", "java test", "factory ",
+				",core ,src ", "abs list,core", "kavi item,ui ", "score cursor!test", "ode ", "main java");
+	}
+
+	@Test
+	public void candidatesIncludeMatchesAcrossOddText() {
+		final List<String[]> items = Arrays.asList(
+				new String[] {"Über.java", "café", "src/ünïcode"},
+				new String[] {"über.java", "cafe", ""},
+				new String[] {"a b c.txt", null, "x y z"},
+				new String[] {"aaaa.java", "aaa", "aa/aaa"},
+				new String[] {"Tab\tName.java", "core", "src\tmain"});
+		assertCandidatesIncludeMatches(items, "über ", "café src", "ünïcode ", "a b", "aaa ", "aaaa aaa", "name java", "src main", "core main");
+	}
+}
@@ -0,0 +1,46 @@
+package dakara.eclipse.plugin.stringscore;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.ints.IntComparator;
+
+public class WorkPoolTest {
+	@Test
+	public void sortIsTheSameAsASequentialSort() {
+		final Random random = new Random(3);
+		for (int length : new int[] {0, 1, 100, 4095, 4096, 10_000, 65_537, 200_000}) {
+			final int[] keys = random.ints(length, 0, 50).toArray();
+			// ties by index, like the rank orders
+			final IntComparator byKey = (first, second) -> keys[first] != keys[second] ? Integer.compare(keys[first], keys[second]) : Integer.compare(first, second);
+			final int[] expected = shuffled(length, random);
+			final int[] sorted = expected.clone();
+			final int from = length / 10, to = length - length / 7;
+			final List<Integer> boxed = new ArrayList<>();
+			for (int index = from; index < to; index++) boxed.add(expected[index]);
+			boxed.sort(byKey::compare);
+			for (int index = from; index < to; index++) expected[index] = boxed.get(index - from);
+
+			WorkPool.RANKING.sort(sorted, from, to, byKey);
+			assertArrayEquals("length " + length, expected, sorted);
+		}
+	}
+
+	private static int[] shuffled(int length, Random random) {
+		final int[] values = new int[length];
+		Arrays.setAll(values, index -> index);
+		for (int index = length - 1; index > 0; index--) {
+			final int other = random.nextInt(index + 1);
+			final int value = values[index];
+			values[index] = values[other];
+			values[other] = value;
+		}
+		return values;
+	}
+}